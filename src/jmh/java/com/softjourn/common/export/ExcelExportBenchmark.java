@@ -0,0 +1,221 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of whole export: rendering of entities into workbook and writing of workbook.
+ * Rows per second are reported by "rows" counter, peak heap by "peakHeap" counter,
+ * allocated bytes per row is gc.alloc.rate.norm of gc profiler divided by number of rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class ExcelExportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"FLAT", "NESTED"})
+    public Tree tree;
+
+    @Param({"HSSF", "SXSSF"})
+    public WorkbookType workbook;
+
+    private List<Object> entities;
+
+    private List<ExportDefiner> definers;
+
+    private ExcelExport excelExport;
+
+    public enum Tree {
+        FLAT, NESTED
+    }
+
+    public enum WorkbookType {
+        HSSF, SXSSF
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        excelExport = new ExcelExport();
+        entities = new ArrayList<>(rows);
+        definers = new ArrayList<>();
+        if (tree == Tree.FLAT) {
+            definers.add(new ExportDefiner("id", "Id"));
+            definers.add(new ExportDefiner("name", "Name"));
+            definers.add(new ExportDefiner("amount", "Amount"));
+            definers.add(new ExportDefiner("created", "Created"));
+            definers.add(new ExportDefiner("active", "Active"));
+            for (int i = 0; i < rows; i++) {
+                entities.add(new Flat(i));
+            }
+        } else {
+            ExportDefiner account = new ExportDefiner("account", null);
+            account.getDefiners().add(new ExportDefiner("name", "Account"));
+            ExportDefiner owner = new ExportDefiner("owner", null);
+            owner.getDefiners().add(new ExportDefiner("name", "Owner"));
+            owner.getDefiners().add(new ExportDefiner("email", "Email"));
+            account.getDefiners().add(owner);
+            definers.add(new ExportDefiner("id", "Id"));
+            definers.add(account);
+            definers.add(new ExportDefiner("amount", "Amount"));
+            definers.add(new ExportDefiner("created", "Created"));
+            for (int i = 0; i < rows; i++) {
+                entities.add(new Nested(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void export(RowCounter counter, HeapCounter heap) throws ReflectiveOperationException, IOException {
+        if (workbook == WorkbookType.HSSF) {
+            try (Workbook result = excelExport.export("benchmark", entities, definers)) {
+                result.write(OutputStream.nullOutputStream());
+            }
+        } else {
+            SXSSFWorkbook result = excelExport.exportStreaming("benchmark", entities, definers);
+            try {
+                result.write(OutputStream.nullOutputStream());
+            } finally {
+                result.dispose();
+            }
+        }
+        counter.rows += rows;
+        heap.measure();
+    }
+
+    /**
+     * Number of exported rows, reported as rows per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    /**
+     * Peak usage of heap in megabytes during iteration,
+     * it is sum of peaks of heap pools, so it can be a bit higher than real peak
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapCounter {
+
+        public long peakHeap;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakHeap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        void measure() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    used += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeap = Math.max(peakHeap, used / (1024 * 1024));
+        }
+    }
+
+    public static class Flat {
+
+        private final long id;
+
+        private final String name;
+
+        private final BigDecimal amount;
+
+        private final Instant created;
+
+        private final boolean active;
+
+        Flat(int i) {
+            id = i;
+            name = "name " + i;
+            amount = BigDecimal.valueOf(i, 2);
+            created = Instant.ofEpochSecond(1_500_000_000L + i);
+            active = i % 2 == 0;
+        }
+    }
+
+    public static class Nested {
+
+        private final long id;
+
+        private final Account account;
+
+        private final BigDecimal amount;
+
+        private final Instant created;
+
+        Nested(int i) {
+            id = i;
+            account = i % 10 == 0 ? null : new Account("account " + i, new Owner("owner " + i, "owner" + i + "@mail.com"));
+            amount = BigDecimal.valueOf(i, 2);
+            created = Instant.ofEpochSecond(1_500_000_000L + i);
+        }
+    }
+
+    public static class Account {
+
+        private final String name;
+
+        private final Owner owner;
+
+        Account(String name, Owner owner) {
+            this.name = name;
+            this.owner = owner;
+        }
+    }
+
+    public static class Owner {
+
+        private final String name;
+
+        private final String email;
+
+        Owner(String name, String email) {
+            this.name = name;
+            this.email = email;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.softjourn.common.export;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * Kind of cell value is written as. Kind is resolved once per value class,
+ * so writing of value is a switch instead of chain of type checks.
+ */
+enum CellKind {
+
+    /**
+     * Any {@link Number}, written as double
+     */
+    NUMBER,
+
+    BOOLEAN,
+
+    /**
+     * {@link String}, values of unknown classes are converted into string by {@link Object#toString()}
+     */
+    TEXT,
+
+    /**
+     * {@link Date}, written as date in default time zone
+     */
+    DATE,
+
+    /**
+     * {@link Instant}, written as date in UTC
+     */
+    INSTANT,
+
+    LOCAL_DATE_TIME,
+
+    LOCAL_DATE,
+
+    /**
+     * Value that should be converted into string
+     */
+    OTHER;
+
+    private static final ClassValue<CellKind> KINDS = new ClassValue<CellKind>() {
+        @Override
+        protected CellKind computeValue(Class<?> type) {
+            if (Number.class.isAssignableFrom(type)) {
+                return NUMBER;
+            }
+            if (type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == String.class) {
+                return TEXT;
+            }
+            if (Date.class.isAssignableFrom(type)) {
+                return DATE;
+            }
+            if (type == Instant.class) {
+                return INSTANT;
+            }
+            if (type == LocalDateTime.class) {
+                return LOCAL_DATE_TIME;
+            }
+            if (type == LocalDate.class) {
+                return LOCAL_DATE;
+            }
+            return OTHER;
+        }
+    };
+
+    /**
+     * @param type - class of value
+     * @return kind of values of class
+     */
+    static CellKind of(Class<?> type) {
+        return KINDS.get(type);
+    }
+
+    /**
+     * @return true if values are written as dates
+     */
+    boolean isDate() {
+        return this == DATE || this == INSTANT || this == LOCAL_DATE_TIME || this == LOCAL_DATE;
+    }
+}
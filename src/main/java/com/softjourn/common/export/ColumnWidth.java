@@ -0,0 +1,91 @@
+package com.softjourn.common.export;
+
+/**
+ * Defines how widths of exported columns are calculated
+ */
+public final class ColumnWidth {
+
+    public enum Mode {
+        /**
+         * Columns are auto sized by sheet, it measures text of every cell with font metrics, exact but slow
+         */
+        EXACT,
+        /**
+         * Widths are estimated from max length of values while rows are written
+         */
+        ESTIMATED,
+        /**
+         * Widths are estimated from max length of values in first rows
+         */
+        SAMPLE,
+        /**
+         * All columns have the same width
+         */
+        FIXED
+    }
+
+    private static final ColumnWidth EXACT = new ColumnWidth(Mode.EXACT, 0);
+
+    private static final ColumnWidth ESTIMATED = new ColumnWidth(Mode.ESTIMATED, 0);
+
+    private final Mode mode;
+
+    private final int value;
+
+    private ColumnWidth(Mode mode, int value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    /**
+     * @return widths calculated by sheet auto sizing
+     */
+    public static ColumnWidth exact() {
+        return EXACT;
+    }
+
+    /**
+     * @return widths estimated from length of all values
+     */
+    public static ColumnWidth estimated() {
+        return ESTIMATED;
+    }
+
+    /**
+     * @param rows - number of first rows to estimate widths from
+     * @return widths estimated from length of values in first rows
+     */
+    public static ColumnWidth sample(int rows) {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("Number of sample rows should be positive but was " + rows);
+        }
+        return new ColumnWidth(Mode.SAMPLE, rows);
+    }
+
+    /**
+     * @param characters - width of every column in characters
+     * @return fixed widths
+     */
+    public static ColumnWidth fixed(int characters) {
+        if (characters <= 0 || characters > 255) {
+            throw new IllegalArgumentException("Column width should be in range 1..255 but was " + characters);
+        }
+        return new ColumnWidth(Mode.FIXED, characters);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of sample rows for {@link Mode#SAMPLE}, width in characters for {@link Mode#FIXED}
+     */
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnWidth{" + mode + (value > 0 ? ", " + value : "") + '}';
+    }
+}
@@ -0,0 +1,199 @@
+package com.softjourn.common.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data of report held by columns, e.g. metrics that are already collected into primitive arrays.
+ * Values of primitive columns are written into cells directly, so export doesn't create row objects
+ * or wrappers of values. All columns should have the same number of values,
+ * arrays are not copied and should not be changed during export.
+ * <pre>
+ * ColumnarDataset dataset = ColumnarDataset.builder()
+ *         .dateColumn("Time", timestamps)
+ *         .longColumn("Requests", requests)
+ *         .doubleColumn("Latency", "0.00", latencies)
+ *         .build();
+ * </pre>
+ */
+public final class ColumnarDataset {
+
+    enum Type {
+        LONG, INT, DOUBLE, BOOLEAN,
+        /**
+         * Milliseconds since epoch written as date in UTC
+         */
+        DATE,
+        /**
+         * Values of any class written as values extracted from entities
+         */
+        OBJECT
+    }
+
+    private final List<String> headers;
+
+    private final List<String> formats;
+
+    private final Type[] types;
+
+    private final Object[] columns;
+
+    private final int rowCount;
+
+    private ColumnarDataset(Builder builder) {
+        this.headers = Collections.unmodifiableList(new ArrayList<>(builder.headers));
+        this.formats = Collections.unmodifiableList(new ArrayList<>(builder.formats));
+        this.types = builder.types.toArray(new Type[0]);
+        this.columns = builder.columns.toArray();
+        this.rowCount = builder.rowCount < 0 ? 0 : builder.rowCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return headers of columns
+     */
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return data formats of columns, null for columns without format
+     */
+    public List<String> getFormats() {
+        return formats;
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    Type getType(int column) {
+        return types[column];
+    }
+
+    long[] getLongs(int column) {
+        return (long[]) columns[column];
+    }
+
+    int[] getInts(int column) {
+        return (int[]) columns[column];
+    }
+
+    double[] getDoubles(int column) {
+        return (double[]) columns[column];
+    }
+
+    boolean[] getBooleans(int column) {
+        return (boolean[]) columns[column];
+    }
+
+    Object[] getObjects(int column) {
+        return (Object[]) columns[column];
+    }
+
+    public static final class Builder {
+
+        private final List<String> headers = new ArrayList<>();
+
+        private final List<String> formats = new ArrayList<>();
+
+        private final List<Type> types = new ArrayList<>();
+
+        private final List<Object> columns = new ArrayList<>();
+
+        private int rowCount = -1;
+
+        private Builder() {
+        }
+
+        public Builder longColumn(String header, long[] values) {
+            return longColumn(header, null, values);
+        }
+
+        public Builder longColumn(String header, String format, long[] values) {
+            return column(header, format, Type.LONG, values, values.length);
+        }
+
+        public Builder intColumn(String header, int[] values) {
+            return intColumn(header, null, values);
+        }
+
+        public Builder intColumn(String header, String format, int[] values) {
+            return column(header, format, Type.INT, values, values.length);
+        }
+
+        /**
+         * Method adds column of doubles, NaN values are written as empty cells
+         *
+         * @param header - header of column
+         * @param values - values
+         * @return Builder
+         */
+        public Builder doubleColumn(String header, double[] values) {
+            return doubleColumn(header, null, values);
+        }
+
+        public Builder doubleColumn(String header, String format, double[] values) {
+            return column(header, format, Type.DOUBLE, values, values.length);
+        }
+
+        public Builder booleanColumn(String header, boolean[] values) {
+            return column(header, null, Type.BOOLEAN, values, values.length);
+        }
+
+        /**
+         * Method adds column of dates
+         *
+         * @param header      - header of column
+         * @param epochMillis - milliseconds since epoch, written as dates in UTC
+         * @return Builder
+         */
+        public Builder dateColumn(String header, long[] epochMillis) {
+            return dateColumn(header, null, epochMillis);
+        }
+
+        public Builder dateColumn(String header, String format, long[] epochMillis) {
+            return column(header, format, Type.DATE, epochMillis, epochMillis.length);
+        }
+
+        /**
+         * Method adds column of values of any class, e.g. strings, they are written as values of entities
+         *
+         * @param header - header of column
+         * @param values - values
+         * @return Builder
+         */
+        public Builder objectColumn(String header, Object[] values) {
+            return objectColumn(header, null, values);
+        }
+
+        public Builder objectColumn(String header, String format, Object[] values) {
+            return column(header, format, Type.OBJECT, values, values.length);
+        }
+
+        public ColumnarDataset build() {
+            return new ColumnarDataset(this);
+        }
+
+        private Builder column(String header, String format, Type type, Object values, int length) {
+            if (rowCount >= 0 && rowCount != length) {
+                throw new IllegalArgumentException("Column " + header + " has " + length + " values but previous columns have "
+                        + rowCount);
+            }
+            rowCount = length;
+            headers.add(header);
+            formats.add(format);
+            types.add(type);
+            columns.add(values);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.softjourn.common.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Export of entities into CSV (or TSV) format.
+ * Rows are written directly into output one at a time without creating workbook,
+ * so memory usage doesn't depend on number of exported rows.
+ * Aggregates declared by definers are accumulated while rows are written and written as summary rows after them.
+ * Export is not registered as bean by itself, create it with separator and charset the application needs
+ */
+public class CsvExport implements StreamingExportService {
+
+    public static final char COMMA = ',';
+
+    public static final char TAB = '\t';
+
+    private final char separator;
+
+    private final Charset charset;
+
+    public CsvExport() {
+        this(COMMA, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param separator - values separator, e.g. {@link #COMMA} or {@link #TAB}
+     * @param charset   - output charset
+     */
+    public CsvExport(char separator, Charset charset) {
+        this.separator = separator;
+        this.charset = charset;
+    }
+
+    /**
+     * Method writes header and entities into output stream, stream is not closed by this method
+     *
+     * @param name     - report name, is not written into CSV
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    @Override
+    public <T> void export(String name, List<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        export(name, entities == null ? null : entities.iterator(), definers, out);
+    }
+
+    /**
+     * Method writes header and entities into output stream, neither stream of entities nor output stream are closed
+     *
+     * @param name     - report name, is not written into CSV
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    public <T> void export(String name, Stream<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        export(name, entities.iterator(), definers, out);
+    }
+
+    /**
+     * Method writes header and entities into output stream, stream is not closed by this method
+     *
+     * @param name     - report name, is not written into CSV
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    public <T> void export(String name, Iterator<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        export(name, entities, definers, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * Method writes header and entities into channel, channel is not closed by this method
+     *
+     * @param name     - report name, is not written into CSV
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - channel
+     */
+    public <T> void export(String name, Iterator<T> entities, List<ExportDefiner> definers, WritableByteChannel out)
+            throws IOException, ReflectiveOperationException {
+        ExportPlan plan = ExportPlan.of(definers);
+        CsvWriter writer = new CsvWriter(out, separator, charset, CsvWriter.BUFFER_SIZE);
+
+        for (String header : plan.getHeaders()) {
+            writer.writeValue(header);
+        }
+        writer.endRow();
+
+        ExportSummary summary = ExportSummary.of(plan);
+        if (entities != null) {
+            Object[] values = new Object[plan.getColumnCount()];
+            while (entities.hasNext()) {
+                plan.extract(entities.next(), values);
+                for (Object value : values) {
+                    writer.writeValue(value);
+                }
+                writer.endRow();
+                if (summary != null) {
+                    summary.add(values);
+                }
+            }
+        }
+        if (summary != null) {
+            for (ExportAggregate aggregate : summary.getRows()) {
+                for (Object value : summary.toRow(aggregate)) {
+                    // sums of doubles are written in plain notation
+                    writer.writeValue(value instanceof Double ? BigDecimal.valueOf((Double) value) : value);
+                }
+                writer.endRow();
+            }
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,213 @@
+package com.softjourn.common.export;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes delimiter separated values into channel through reusable char and byte buffers.
+ * Values are appended char by char, so strings and integral numbers don't produce intermediate objects.
+ * Values are quoted in accordance with RFC 4180 when it is needed.
+ */
+class CsvWriter implements Appendable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private final WritableByteChannel channel;
+
+    private final char separator;
+
+    private final CharsetEncoder encoder;
+
+    private final CharBuffer chars;
+
+    private final ByteBuffer bytes;
+
+    /**
+     * Column of next value in current row
+     */
+    private int column;
+
+    CsvWriter(WritableByteChannel channel, char separator, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.separator = separator;
+        this.encoder = charset.newEncoder();
+        this.chars = CharBuffer.allocate(bufferSize);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(bufferSize * encoder.maxBytesPerChar()));
+    }
+
+    /**
+     * Method writes value into next column of current row
+     *
+     * @param value - value to write, null is written as empty value
+     * @throws IOException if writing fails
+     */
+    void writeValue(Object value) throws IOException {
+        if (column++ > 0) {
+            append(separator);
+        }
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            appendLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            append((Boolean) value ? "true" : "false");
+        } else if (value instanceof BigDecimal) {
+            appendQuoted(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            appendFloating((Number) value);
+        } else if (value instanceof Instant) {
+            DateTimeFormatter.ISO_INSTANT.formatTo((Instant) value, this);
+        } else if (value instanceof Date) {
+            // java.sql.Date and java.sql.Time don't support toInstant()
+            DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(((Date) value).getTime()), this);
+        } else if (value instanceof CharSequence) {
+            appendQuoted((CharSequence) value);
+        } else {
+            appendQuoted(value.toString());
+        }
+    }
+
+    /**
+     * Method ends current row
+     *
+     * @throws IOException if writing fails
+     */
+    void endRow() throws IOException {
+        append(LINE_SEPARATOR);
+        column = 0;
+    }
+
+    /**
+     * Method encodes and writes all buffered chars into channel
+     *
+     * @throws IOException if writing fails
+     */
+    void flush() throws IOException {
+        encode(true);
+        CoderResult result;
+        while ((result = encoder.flush(bytes)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        drain();
+        encoder.reset();
+    }
+
+    @Override
+    public Appendable append(CharSequence value) throws IOException {
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence value, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            append(value.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    private void appendQuoted(CharSequence value) throws IOException {
+        if (!needsQuotes(value)) {
+            append(value);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == separator || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        long divider = 1;
+        while (value / divider >= 10) {
+            divider *= 10;
+        }
+        for (; divider > 0; divider /= 10) {
+            append((char) ('0' + value / divider % 10));
+        }
+    }
+
+    /**
+     * Method writes finite value in plain notation like decimals, e.g. 1.0E7 is written as 10000000.
+     * Shortest string form of value is used, so float isn't widened to its binary expansion.
+     */
+    private void appendFloating(Number value) throws IOException {
+        String string = value.toString();
+        if (Double.isFinite(value.doubleValue())) {
+            append(new BigDecimal(string).toPlainString());
+        } else {
+            append(string);
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new IOException("Can't encode value in " + encoder.charset(), e);
+            }
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,182 @@
+package com.softjourn.common.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Part of zip entry compressed independently from other parts, e.g. on its own thread.
+ * Data is written as raw deflate stream that ends with sync flush instead of final block,
+ * so compressed segments can be concatenated into one entry as is; only last segment of entry ends with final block.
+ * CRC and size of uncompressed data are tracked to combine them for whole entry, see {@link ZipAssembler}.
+ * Compressed data is kept in memory for small segments or in temporary file for large ones.
+ */
+final class DeflatedSegment extends OutputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final boolean last;
+
+    private final Path file;
+
+    private final OutputStream out;
+
+    private long size;
+
+    private long compressedSize;
+
+    private boolean closed;
+
+    private DeflatedSegment(boolean last, Path file, OutputStream out) {
+        this.last = last;
+        this.file = file;
+        this.out = out;
+    }
+
+    /**
+     * @param last - true if segment is last one of entry
+     * @return segment compressed into memory
+     */
+    static DeflatedSegment inMemory(boolean last) {
+        return new DeflatedSegment(last, null, new ByteArrayOutputStream());
+    }
+
+    /**
+     * @param last - true if segment is last one of entry
+     * @return segment compressed into new temporary file, file is deleted by {@link #delete()}
+     */
+    static DeflatedSegment inFile(boolean last) throws IOException {
+        Path file = Files.createTempFile(ExcelExport.FILE_PREFIX, ".part");
+        try {
+            return new DeflatedSegment(last, file, Files.newOutputStream(file));
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Segment is closed");
+        }
+        crc.update(b, off, len);
+        size += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate(Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * Method completes compressed data, last segment ends with final block and others with sync flush
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+            } else {
+                // output of sync flush is complete when it doesn't fill whole buffer
+                while (deflate(Deflater.SYNC_FLUSH) == buffer.length) {
+                    // continue flushing
+                }
+            }
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * @return CRC-32 of uncompressed data
+     */
+    long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * @return number of uncompressed bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of compressed bytes
+     */
+    long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Method copies compressed data into channel, data of file is transferred by file channel
+     *
+     * @param target - channel
+     */
+    void transferTo(WritableByteChannel target) throws IOException {
+        if (file == null) {
+            ByteBuffer data = ByteBuffer.wrap(((ByteArrayOutputStream) out).toByteArray());
+            while (data.hasRemaining()) {
+                target.write(data);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long count = channel.size();
+            while (position < count) {
+                position += channel.transferTo(position, count - position, target);
+            }
+        }
+    }
+
+    /**
+     * Method releases deflater and deletes temporary file of segment
+     */
+    void delete() throws IOException {
+        if (!closed) {
+            closed = true;
+            deflater.end();
+            out.close();
+        }
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private int deflate(int flush) throws IOException {
+        int count = deflater.deflate(buffer, 0, buffer.length, flush);
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            compressedSize += count;
+        }
+        return count;
+    }
+}
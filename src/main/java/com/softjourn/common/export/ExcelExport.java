@@ -3,28 +3,37 @@ package com.softjourn.common.export;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.util.Arrays;
-import java.util.Date;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-
-import static com.softjourn.common.utils.ReflectionUtil.tryToCastValue;
-import static com.softjourn.common.utils.Util.instantToRFC_1123_DATE_TIME;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Service
 public class ExcelExport {
 
+    /**
+     * Data format of date columns that don't define their own format
+     */
+    public static final String DATE_TIME_FORMAT = "yyyy-mm-dd hh:mm:ss";
+
+    static final String FILE_PREFIX = "export-";
+
+    static final String FILE_SUFFIX = ".xlsx";
+
     /**
      * Method creates excel sheet and writes transactions into sheet
      *
@@ -45,6 +54,384 @@ public class ExcelExport {
         return workbook;
     }
 
+    /**
+     * Method creates excel sheet and writes entities into sheet one at a time
+     *
+     * @param name     - sheet name
+     * @param entities - data, stream is not closed by this method
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return Workbook
+     */
+    public <T> Workbook export(String name, Stream<T> entities, List<ExportDefiner> definers, ExportOptions options)
+            throws ReflectiveOperationException {
+        return export(name, entities.iterator(), definers, options);
+    }
+
+    /**
+     * Method creates excel sheet and writes entities into sheet one at a time
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return Workbook
+     */
+    public <T> Workbook export(String name, Iterator<T> entities, List<ExportDefiner> definers, ExportOptions options)
+            throws ReflectiveOperationException {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        workbook.createSheet(name);
+
+        addHeader(workbook, name, 0, definers);
+
+        addContent(workbook, name, 1, definers, entities, options);
+
+        return workbook;
+    }
+
+    /**
+     * Method creates streaming xlsx sheet and writes transactions into sheet
+     * keeping only {@link SXSSFWorkbook#DEFAULT_WINDOW_SIZE} rows in memory
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @return SXSSFWorkbook - caller is responsible to call dispose() after workbook is written
+     * @see #exportStreaming(String, List, List, int)
+     */
+    public <T> SXSSFWorkbook exportStreaming(String name, List<T> entities, List<ExportDefiner> definers)
+            throws ReflectiveOperationException {
+        return exportStreaming(name, entities, definers, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Method creates streaming xlsx sheet and writes transactions into sheet.
+     * Only last rowAccessWindowSize rows are kept in memory, older rows are flushed to temporary file,
+     * so heap usage does not depend on number of exported rows
+     *
+     * @param name                - sheet name
+     * @param entities            - data
+     * @param definers            - defines data to be recorded
+     * @param rowAccessWindowSize - number of rows kept in memory
+     * @return SXSSFWorkbook - caller is responsible to call dispose() after workbook is written
+     */
+    public <T> SXSSFWorkbook exportStreaming(String name, List<T> entities, List<ExportDefiner> definers,
+                                             int rowAccessWindowSize) throws ReflectiveOperationException {
+        ExportOptions options = new ExportOptions();
+        options.setRowAccessWindowSize(rowAccessWindowSize);
+        return exportStreaming(name, entities, definers, options);
+    }
+
+    /**
+     * Method creates streaming xlsx sheet and writes entities into sheet.
+     * If entities don't fit into one sheet and executor of options is set
+     * sheets are filled concurrently, see {@link #addContent(Workbook, String, Integer, List, List, ExportOptions)}
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return SXSSFWorkbook - caller is responsible to call dispose() after workbook is written
+     */
+    public <T> SXSSFWorkbook exportStreaming(String name, List<T> entities, List<ExportDefiner> definers,
+                                             ExportOptions options) throws ReflectiveOperationException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        workbook.createSheet(name);
+
+        addHeader(workbook, name, 0, definers);
+
+        addContent(workbook, name, 1, definers, entities, options);
+
+        return workbook;
+    }
+
+    /**
+     * Method creates streaming xlsx sheet and writes entities into sheet one at a time,
+     * so neither data nor sheet have to be fully loaded into memory
+     *
+     * @param name     - sheet name
+     * @param entities - data, stream is not closed by this method
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return SXSSFWorkbook - caller is responsible to call dispose() after workbook is written
+     */
+    public <T> SXSSFWorkbook exportStreaming(String name, Stream<T> entities, List<ExportDefiner> definers,
+                                             ExportOptions options) throws ReflectiveOperationException {
+        return exportStreaming(name, entities.iterator(), definers, options);
+    }
+
+    /**
+     * Method creates streaming xlsx sheet and writes entities into sheet one at a time,
+     * so neither data nor sheet have to be fully loaded into memory
+     *
+     * @param name     - sheet name
+     * @param entities - data, e.g. {@link PageIterator} over repository pages
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return SXSSFWorkbook - caller is responsible to call dispose() after workbook is written
+     */
+    public <T> SXSSFWorkbook exportStreaming(String name, Iterator<T> entities, List<ExportDefiner> definers,
+                                             ExportOptions options) throws ReflectiveOperationException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        workbook.createSheet(name);
+
+        addHeader(workbook, name, 0, definers);
+
+        addContent(workbook, name, 1, definers, entities, options);
+
+        return workbook;
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream.
+     * Rows are flushed while they are written, so report is never fully held in memory,
+     * temporary files of workbook are deleted even if writing fails
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream, e.g. of StreamingResponseBody, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, List<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws ReflectiveOperationException, IOException {
+        export(name, entities, definers, new ExportOptions(), out);
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream.
+     * Rows are flushed while they are written, so report is never fully held in memory,
+     * temporary files of workbook are deleted even if writing fails
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @param out      - output stream, e.g. of StreamingResponseBody, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, List<T> entities, List<ExportDefiner> definers, ExportOptions options,
+                           OutputStream out) throws ReflectiveOperationException, IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        try {
+            workbook.createSheet(name);
+            addHeader(workbook, name, 0, definers);
+            addContent(workbook, name, 1, definers, entities, options);
+            workbook.write(out);
+        } finally {
+            release(workbook);
+        }
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream consuming entities one at a time
+     *
+     * @param name     - sheet name
+     * @param entities - data, stream is not closed by this method
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @param out      - output stream, e.g. of StreamingResponseBody, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, Stream<T> entities, List<ExportDefiner> definers, ExportOptions options,
+                           OutputStream out) throws ReflectiveOperationException, IOException {
+        export(name, entities.iterator(), definers, options, out);
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream consuming entities one at a time
+     *
+     * @param name     - sheet name
+     * @param entities - data, e.g. {@link PageIterator} over repository pages
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @param out      - output stream, e.g. of StreamingResponseBody, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, Iterator<T> entities, List<ExportDefiner> definers, ExportOptions options,
+                           OutputStream out) throws ReflectiveOperationException, IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        try {
+            workbook.createSheet(name);
+            addHeader(workbook, name, 0, definers);
+            addContent(workbook, name, 1, definers, entities, options);
+            workbook.write(out);
+        } finally {
+            release(workbook);
+        }
+    }
+
+    /**
+     * Method exports entities of reactive publisher as xlsx directly into output stream.
+     * Entities are requested by chunks of chunk size of options and written as they arrive,
+     * so slow output throttles publisher. Calling thread is blocked until publisher completes,
+     * subscription is cancelled if export fails
+     *
+     * @param name     - sheet name
+     * @param entities - publisher of data, e.g. R2DBC query
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @param out      - output stream, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, Flow.Publisher<? extends T> entities, List<ExportDefiner> definers,
+                           ExportOptions options, OutputStream out) throws ReflectiveOperationException, IOException {
+        try (PublisherIterator<T> iterator = new PublisherIterator<>(entities, options.getChunkSize())) {
+            export(name, iterator, definers, options, out);
+        }
+    }
+
+    /**
+     * Method exports entities as xlsx into temporary file, so report can be sent without copying it through heap
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return ExportFile - caller is responsible to transfer or close it, so file is deleted
+     * @throws IOException if file can't be written
+     */
+    public <T> ExportFile exportToFile(String name, List<T> entities, List<ExportDefiner> definers,
+                                       ExportOptions options) throws ReflectiveOperationException, IOException {
+        ExportFile file = new ExportFile(Files.createTempFile(FILE_PREFIX, FILE_SUFFIX));
+        try (OutputStream out = Files.newOutputStream(file.getPath())) {
+            export(name, entities, definers, options, out);
+        } catch (ReflectiveOperationException | IOException | RuntimeException | Error e) {
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Method exports entities as xlsx into temporary file consuming entities one at a time
+     *
+     * @param name     - sheet name
+     * @param entities - data, e.g. {@link PageIterator} over repository pages
+     * @param definers - defines data to be recorded
+     * @param options  - export options
+     * @return ExportFile - caller is responsible to transfer or close it, so file is deleted
+     * @throws IOException if file can't be written
+     */
+    public <T> ExportFile exportToFile(String name, Iterator<T> entities, List<ExportDefiner> definers,
+                                       ExportOptions options) throws ReflectiveOperationException, IOException {
+        ExportFile file = new ExportFile(Files.createTempFile(FILE_PREFIX, FILE_SUFFIX));
+        try (OutputStream out = Files.newOutputStream(file.getPath())) {
+            export(name, entities, definers, options, out);
+        } catch (ReflectiveOperationException | IOException | RuntimeException | Error e) {
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Method creates excel sheet and writes entities into sheet by row writer
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param rows     - row writer, e.g. generated one {@link ExportRowWriters#of(Class)}
+     * @return Workbook
+     */
+    public <T> Workbook export(String name, List<T> entities, ExportRowWriter<? super T> rows)
+            throws ReflectiveOperationException {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        workbook.createSheet(name);
+
+        addHeader(workbook, name, 0, rows);
+
+        addContent(workbook, name, 1, rows, entities, new ExportOptions());
+
+        return workbook;
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream filling rows by row writer,
+     * see {@link #export(String, List, List, ExportOptions, OutputStream)}
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param rows     - row writer, e.g. generated one {@link ExportRowWriters#of(Class)}
+     * @param options  - export options
+     * @param out      - output stream, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, List<T> entities, ExportRowWriter<? super T> rows, ExportOptions options,
+                           OutputStream out) throws ReflectiveOperationException, IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        try {
+            workbook.createSheet(name);
+            addHeader(workbook, name, 0, rows);
+            addContent(workbook, name, 1, rows, entities, options);
+            workbook.write(out);
+        } finally {
+            release(workbook);
+        }
+    }
+
+    /**
+     * Method exports entities as xlsx directly into output stream consuming entities one at a time
+     * and filling rows by row writer
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param rows     - row writer, e.g. generated one {@link ExportRowWriters#of(Class)}
+     * @param options  - export options
+     * @param out      - output stream, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public <T> void export(String name, Iterator<T> entities, ExportRowWriter<? super T> rows, ExportOptions options,
+                           OutputStream out) throws ReflectiveOperationException, IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        try {
+            workbook.createSheet(name);
+            addHeader(workbook, name, 0, rows);
+            addContent(workbook, name, 1, rows, entities, options);
+            workbook.write(out);
+        } finally {
+            release(workbook);
+        }
+    }
+
+    /**
+     * Method creates excel sheet and writes rows of dataset into sheet
+     *
+     * @param name    - sheet name
+     * @param dataset - data held by columns
+     * @return Workbook
+     */
+    public Workbook export(String name, ColumnarDataset dataset) {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        workbook.createSheet(name);
+
+        addHeader(workbook, name, 0, dataset);
+
+        addContent(workbook, name, 1, dataset, new ExportOptions());
+
+        return workbook;
+    }
+
+    /**
+     * Method exports rows of dataset as xlsx directly into output stream
+     *
+     * @param name    - sheet name
+     * @param dataset - data held by columns
+     * @param options - export options
+     * @param out     - output stream, stream is not closed by this method
+     * @throws IOException if writing fails, e.g. client closed connection
+     */
+    public void export(String name, ColumnarDataset dataset, ExportOptions options, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowAccessWindowSize());
+        try {
+            workbook.createSheet(name);
+            addHeader(workbook, name, 0, dataset);
+            addContent(workbook, name, 1, dataset, options);
+            workbook.write(out);
+        } finally {
+            release(workbook);
+        }
+    }
+
     /**
      * Method adds sheet to existing workbook
      *
@@ -82,14 +469,35 @@ public class ExcelExport {
      * @param definers  - definer
      */
     public void addHeader(Workbook workbook, String sheetName, Integer rowNumber, List<ExportDefiner> definers) {
-        Sheet sheet = workbook.getSheet(sheetName);
-        // header
         if (definers != null) {
-            Row header = sheet.createRow(rowNumber);
-            prepareHeaders(header, getDefaultStyle(workbook), 0, definers);
+            addHeader(workbook, sheetName, rowNumber, ExportPlan.of(definers));
         }
     }
 
+    /**
+     * Method adds header of row writer into specific row
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param rows      - row writer, e.g. generated one
+     */
+    public void addHeader(Workbook workbook, String sheetName, Integer rowNumber, ExportRowWriter<?> rows) {
+        addHeader(workbook.getSheet(sheetName), getDefaultStyle(workbook), rowNumber, rows.getHeaders());
+    }
+
+    /**
+     * Method adds header of dataset into specific row
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param dataset   - dataset
+     */
+    public void addHeader(Workbook workbook, String sheetName, Integer rowNumber, ColumnarDataset dataset) {
+        addHeader(workbook.getSheet(sheetName), getDefaultStyle(workbook), rowNumber, dataset.getHeaders());
+    }
+
     /**
      * Method adds content to sheet
      *
@@ -105,149 +513,323 @@ public class ExcelExport {
      */
     public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
                                   List<ExportDefiner> definers, List<T> entities) throws ReflectiveOperationException {
-        Sheet sheet = workbook.getSheet(sheetName);
+        return addContent(workbook, sheetName, rowNumber, definers,
+                entities == null ? null : entities.iterator(), new ExportOptions());
+    }
+
+    /**
+     * Method adds content to sheet, when sheet is full writing continues on next sheets "name_2", "name_3"...
+     * If workbook is streaming one, executor of options is set and widths are not auto sized
+     * every sheet is filled by its own executor thread
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param definers  - definer
+     * @param entities  - entities
+     * @param options   - export options
+     * @param <T>       - any entity
+     * @return Integer - row number on last sheet where method stopped adding new rows
+     * @throws ReflectiveOperationException
+     */
+    public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
+                                  List<ExportDefiner> definers, List<T> entities, ExportOptions options)
+            throws ReflectiveOperationException {
+        return addContent(workbook, sheetName, rowNumber, ExportPlan.of(definers), entities, options);
+    }
+
+    /**
+     * Method adds content to sheet filling rows by row writer,
+     * see {@link #addContent(Workbook, String, Integer, List, List, ExportOptions)}
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param rows      - row writer, e.g. generated one
+     * @param entities  - entities
+     * @param options   - export options
+     * @param <T>       - any entity
+     * @return Integer - row number on last sheet where method stopped adding new rows
+     * @throws ReflectiveOperationException
+     */
+    public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
+                                  ExportRowWriter<? super T> rows, List<T> entities, ExportOptions options)
+            throws ReflectiveOperationException {
+        if (entities == null) {
+            return 0;
+        }
+        int capacity = SheetWriter.capacity(workbook, rowNumber, options);
+        // only streaming sheets are written independently, auto sizing uses shared formatter
+        if (!(workbook instanceof SXSSFWorkbook) || options.getExecutor() == null
+                || options.getColumnWidth().getMode() == ColumnWidth.Mode.EXACT || entities.size() <= capacity) {
+            return addContent(workbook, sheetName, rowNumber, rows, entities.iterator(), options);
+        }
 
-        int finalPosition = 0;
-        int columns = 0;
-        // main content
-        if (entities != null) {
-            finalPosition = rowNumber + entities.size() - 1;
-            for (int i = 0; i < entities.size(); i++) {
-                Row content = sheet.createRow(rowNumber + i);
-                columns = prepareContent(content, getDefaultStyle(workbook), 0, definers, entities.get(i));
+        CellStyle[] styles = getColumnStyles(workbook, rows.getFormats());
+        CellStyle[] dateStyles = getDateStyles(workbook, rows.getFormats(), styles);
+        CellStyle headerStyle = getDefaultStyle(workbook);
+        ExportSummary summary = ExportSummary.of(rows);
+        AtomicLong written = new AtomicLong();
+        List<List<T>> partitions = new ArrayList<>();
+        List<SheetWriter> writers = new ArrayList<>();
+        Sheet sheet = workbook.getSheet(sheetName);
+        int firstRow = rowNumber;
+        for (int from = 0; from < entities.size(); from += capacity) {
+            if (from > 0) {
+                sheet = SheetWriter.createNextSheet(workbook, sheetName, rows.getHeaders(), headerStyle);
+                firstRow = 1;
+                capacity = SheetWriter.capacity(workbook, firstRow, options);
             }
+            partitions.add(entities.subList(from, Math.min(entities.size(), from + capacity)));
+            SheetWriter writer = new SheetWriter(sheet, styles, dateStyles, headerStyle, rows.getHeaders(), firstRow,
+                    options, partitionListener(written, options.getChunkListener()));
+            writer.setSummary(summary == null ? null : summary.copy());
+            writers.add(writer);
+        }
+        int last = ParallelRowRenderer.renderPartitions(rows, partitions, writers, options.getExecutor());
+        if (summary == null) {
+            return last;
+        }
+        for (SheetWriter writer : writers) {
+            summary.merge(writer.getSummary());
         }
+        return writers.get(writers.size() - 1).writeSummary(summary, writers);
+    }
 
-        // auto size columns width
-        for (int i = 0; i < columns; i++) {
-            sheet.autoSizeColumn(i);
+    /**
+     * Method adds content to sheet consuming entities one at a time
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param definers  - definer
+     * @param entities  - entities, stream is not closed by this method
+     * @param options   - export options
+     * @param <T>       - any entity
+     * @return Integer - row number where method stopped adding new rows
+     * @throws ReflectiveOperationException
+     */
+    public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
+                                  List<ExportDefiner> definers, Stream<T> entities, ExportOptions options)
+            throws ReflectiveOperationException {
+        return addContent(workbook, sheetName, rowNumber, definers, entities == null ? null : entities.iterator(), options);
+    }
+
+    /**
+     * Method adds content to sheet consuming entities one at a time.
+     * Chunk listener of options is notified every {@link ExportOptions#getChunkSize()} rows.
+     * If executor of options is set values are extracted by executor threads chunk by chunk.
+     * When sheet is full writing continues on next sheets "name_2", "name_3" and so on with repeated header.
+     * If definers declare aggregates, they are accumulated while rows are written and summary rows with formulas
+     * are added after last row
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param definers  - definer
+     * @param entities  - entities
+     * @param options   - export options
+     * @param <T>       - any entity
+     * @return Integer - row number where method stopped adding new rows, including summary rows
+     * @throws ReflectiveOperationException
+     */
+    public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
+                                  List<ExportDefiner> definers, Iterator<T> entities, ExportOptions options)
+            throws ReflectiveOperationException {
+        return addContent(workbook, sheetName, rowNumber, ExportPlan.of(definers), entities, options);
+    }
+
+    /**
+     * Method adds content to sheet consuming entities one at a time and filling rows by row writer,
+     * see {@link #addContent(Workbook, String, Integer, List, Iterator, ExportOptions)}
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param rows      - row writer, e.g. generated one
+     * @param entities  - entities
+     * @param options   - export options
+     * @param <T>       - any entity
+     * @return Integer - row number where method stopped adding new rows
+     * @throws ReflectiveOperationException
+     */
+    public <T> Integer addContent(Workbook workbook, String sheetName, Integer rowNumber,
+                                  ExportRowWriter<? super T> rows, Iterator<T> entities, ExportOptions options)
+            throws ReflectiveOperationException {
+        if (entities == null) {
+            return 0;
         }
+        CellStyle[] styles = getColumnStyles(workbook, rows.getFormats());
+        CellStyle[] dateStyles = getDateStyles(workbook, rows.getFormats(), styles);
+        SheetWriter writer = new SheetWriter(workbook.getSheet(sheetName), styles, dateStyles, getDefaultStyle(workbook),
+                rows.getHeaders(), rowNumber, options, options.getChunkListener());
+        ExportSummary summary = ExportSummary.of(rows);
+        writer.setSummary(summary);
+        if (options.getExecutor() == null) {
+            Object[] values = new Object[rows.getColumnCount()];
+            while (entities.hasNext()) {
+                rows.extract(entities.next(), values);
+                SheetWriter.convert(values);
+                writer.write(values);
+            }
+        } else {
+            ParallelRowRenderer.render(rows, entities, writer, options);
+        }
+        if (summary != null) {
+            writer.writeSummary(summary, Collections.singletonList(writer));
+        }
+        return writer.finish();
+    }
 
-        return finalPosition;
+    /**
+     * Method adds rows of dataset to sheet, values of primitive columns are set into cells without boxing.
+     * Chunk listener of options is notified every {@link ExportOptions#getChunkSize()} rows.
+     * When sheet is full writing continues on next sheets "name_2", "name_3" and so on with repeated header
+     *
+     * @param workbook  - wordbook
+     * @param sheetName - sheetName
+     * @param rowNumber - rowNumber
+     * @param dataset   - dataset
+     * @param options   - export options, executor is not used as rows are not rendered
+     * @return Integer - row number where method stopped adding new rows
+     */
+    public Integer addContent(Workbook workbook, String sheetName, Integer rowNumber, ColumnarDataset dataset,
+                              ExportOptions options) {
+        if (dataset == null) {
+            return 0;
+        }
+        CellStyle[] styles = getColumnStyles(workbook, dataset.getFormats());
+        CellStyle[] dateStyles = getDateStyles(workbook, dataset.getFormats(), styles);
+        SheetWriter writer = new SheetWriter(workbook.getSheet(sheetName), styles, dateStyles, getDefaultStyle(workbook),
+                dataset.getHeaders(), rowNumber, options, options.getChunkListener());
+        for (int i = 0; i < dataset.getRowCount(); i++) {
+            writer.write(dataset, i);
+        }
+        return writer.finish();
     }
 
     /**
-     * Method gets default style
+     * Method gets default style, style is created once per workbook and shared by all cells
      *
      * @param workbook - wordbook
      * @return CellStyle
      */
     public CellStyle getDefaultStyle(Workbook workbook) {
-        Font font = workbook.createFont();
-        font.setFontHeightInPoints((short) 14);
-        font.setFontName("Calibri");
-
-        CellStyle style = workbook.createCellStyle();
-        style.setFont(font);
-
-        return style;
+        return getStyle(workbook, ExportStyle.DEFAULT);
     }
 
     /**
-     * Method prepares cell and sets data and style into cell
+     * Method gets style by definition, style is created once per workbook and shared by all cells
      *
-     * @param row    - row where is needed to add content
-     * @param style  - content style
-     * @param column - column index
-     * @param value  - value to set
-     * @return Cell
+     * @param workbook - wordbook
+     * @param style    - style definition
+     * @return CellStyle
      */
-    private Cell prepareCell(Row row, CellStyle style, Integer column, Object value) {
-        Cell cell = row.createCell(column);
-        if (value == null) {
-            cell.setCellValue("");
-        } else if (value instanceof Date) {
-            cell.setCellValue((Date) value);
-        } else if (value instanceof Instant)
-            cell.setCellValue(instantToRFC_1123_DATE_TIME((Instant) value, ZoneId.of("+0")));
-        else if (value instanceof Number || value.getClass().isPrimitive())
-            cell.setCellValue((Double) tryToCastValue(Double.class, value));
-        else if (value.getClass().isInstance(true))
-            cell.setCellValue((Boolean) tryToCastValue(Boolean.class, value));
-        else cell.setCellValue(value.toString());
-
-        cell.setCellStyle(style);
-
-        return cell;
+    public CellStyle getStyle(Workbook workbook, ExportStyle style) {
+        return StyleRegistry.getStyle(workbook, style);
     }
 
     /**
-     * Method adds header into row reading definer of entity
+     * Method gets styles of columns applying data formats of columns to default style
      *
-     * @param row      - row where is needed to add content
-     * @param style    - content style
-     * @param index    - number of column from where is needed to start filling
-     * @param definers - entity definer
-     * @return -  int - is needed for recursion
+     * @param workbook - wordbook
+     * @param formats  - data formats of columns
+     * @return CellStyle[] - style for every column
      */
-    private int prepareHeaders(Row row, CellStyle style, int index, List<ExportDefiner> definers) {
-        for (ExportDefiner definer : definers) {
-            if (definer.getDefiners().size() == 0 && definer.getHeader() != null) {
-                prepareCell(row, style, index++, definer.getHeader());
-            } else {
-                index = prepareHeaders(row, style, index, definer.getDefiners());
-            }
+    private CellStyle[] getColumnStyles(Workbook workbook, List<String> formats) {
+        CellStyle[] styles = new CellStyle[formats.size()];
+        for (int i = 0; i < styles.length; i++) {
+            String format = formats.get(i);
+            styles[i] = format == null ? getDefaultStyle(workbook) : getStyle(workbook, ExportStyle.DEFAULT.withDataFormat(format));
         }
-        return index;
+        return styles;
     }
 
     /**
-     * Method adds content into row reading entity and definer of entity
+     * Method gets styles of columns for date values, columns without data format get {@link #DATE_TIME_FORMAT}
      *
-     * @param row      - row where is needed to add content
-     * @param style    - content style
-     * @param index    - number of column from where is needed to start filling
-     * @param definers - entity definer
-     * @param entity   - data
-     * @param <T>      - data class
-     * @return -  int - is needed for recursion
-     * @throws NoSuchFieldException
-     * @throws IllegalAccessException
+     * @param workbook - wordbook
+     * @param formats  - data formats of columns
+     * @param styles   - styles of columns
+     * @return CellStyle[] - date style for every column
      */
-    private <T> int prepareContent(Row row, CellStyle style, int index, List<ExportDefiner> definers, T entity) throws ReflectiveOperationException {
-        for (ExportDefiner definer : definers) {
-            if (entity == null) {
-                prepareCell(row, style, index++, null);
+    private CellStyle[] getDateStyles(Workbook workbook, List<String> formats, CellStyle[] styles) {
+        CellStyle[] dateStyles = new CellStyle[styles.length];
+        CellStyle dateStyle = null;
+        for (int i = 0; i < dateStyles.length; i++) {
+            if (formats.get(i) != null) {
+                dateStyles[i] = styles[i];
             } else {
-                Object value = recognize(definer, entity);
-                if (definer.getDefiners().size() == 0 && definer.getHeader() != null) {
-                    prepareCell(row, style, index++, value);
-                } else {
-                    index = prepareContent(row, style, index, definer.getDefiners(), value);
+                if (dateStyle == null) {
+                    dateStyle = getStyle(workbook, ExportStyle.DEFAULT.withDataFormat(DATE_TIME_FORMAT));
                 }
+                dateStyles[i] = dateStyle;
             }
         }
-        return index;
+        return dateStyles;
     }
 
     /**
-     * Method try to recognize method or field and gets value from there
+     * Method deletes temporary files of streaming workbook and closes it
      *
-     * @param definer - definer
-     * @param entity  - entity
-     * @param <T>     - class
-     * @return Object
-     * @throws ReflectiveOperationException
+     * @param workbook - workbook
      */
-    private <T> Object recognize(ExportDefiner definer, T entity) throws ReflectiveOperationException {
-        Class<?> aClass = entity.getClass();
-        List<Field> fields = Arrays.asList(aClass.getDeclaredFields());
-        Optional<Field> possibleField = fields.stream().filter(f -> f.getName().equals(definer.getName())).findFirst();
-        if (possibleField.isPresent()) {
-            Field field = possibleField.get();
-            field.setAccessible(true);
-            return field.get(entity);
-        } else {
-            try {
-                if (definer.getParameters() == null) {
-                    return aClass.getDeclaredMethod(definer.getName()).invoke(entity);
-                } else {
-                    return aClass.getDeclaredMethod(definer.getName(), definer.getClasses()).invoke(entity, definer.getParameters());
-                }
-            } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e1) {
-                throw new ReflectiveOperationException("There is no such field or method!");
+    private void release(SXSSFWorkbook workbook) throws IOException {
+        workbook.dispose();
+        workbook.close();
+    }
+
+    /**
+     * Method creates listener of one partition that notifies listener with total number of rows of all partitions
+     *
+     * @param written  - total number of written rows
+     * @param listener - listener to notify
+     * @return LongConsumer - listener of partition, null if there is nothing to notify
+     */
+    private LongConsumer partitionListener(AtomicLong written, LongConsumer listener) {
+        if (listener == null) {
+            return null;
+        }
+        long[] reported = new long[1];
+        return partitionWritten -> {
+            long total = written.addAndGet(partitionWritten - reported[0]);
+            reported[0] = partitionWritten;
+            synchronized (listener) {
+                listener.accept(total);
             }
+        };
+    }
+
+    /**
+     * Method writes headers into new row
+     *
+     * @param sheet     - sheet
+     * @param style     - style of headers
+     * @param rowNumber - rowNumber
+     * @param headers   - headers
+     */
+    private void addHeader(Sheet sheet, CellStyle style, Integer rowNumber, List<String> headers) {
+        Row header = sheet.createRow(rowNumber);
+        for (int i = 0; i < headers.size(); i++) {
+            prepareCell(header, style, i, headers.get(i));
         }
     }
 
+    /**
+     * Method prepares cell and sets data and style into cell
+     *
+     * @param row    - row where is needed to add content
+     * @param style  - content style
+     * @param column - column index
+     * @param value  - value to set
+     * @return Cell
+     */
+    private Cell prepareCell(Row row, CellStyle style, Integer column, String value) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value == null ? "" : value);
+        cell.setCellStyle(style);
+
+        return cell;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,367 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.springframework.stereotype.Service;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Import of xlsx reports, inverse of {@link ExcelExport}.
+ * Header row is matched with headers of the same definers report was exported with,
+ * values of cells are written into entity fields or setters named by definers.
+ * Sheet xml is parsed one row at a time, so memory usage doesn't depend on number of rows.
+ * Sheets that were created when report exceeded rows per sheet limit are read as continuation of report.
+ * Summary rows written after last data row for aggregates of definers are not imported.
+ */
+@Service
+public class ExcelImport {
+
+    private static final String FILE_PREFIX = "import-";
+
+    private static final String FILE_SUFFIX = ".xlsx";
+
+    /**
+     * Method opens report as stream of entities, stream should be closed to release file
+     *
+     * @param file     - xlsx file
+     * @param name     - sheet name, first sheet is read if null
+     * @param type     - entity class, should have no-argument constructor
+     * @param definers - defines data that was recorded
+     * @return stream of entities, read and conversion errors are thrown as {@link UncheckedIOException}
+     * and {@link IllegalArgumentException}
+     * @throws IOException if file is not xlsx
+     */
+    public <T> Stream<T> read(Path file, String name, Class<T> type, List<ExportDefiner> definers)
+            throws IOException, ReflectiveOperationException {
+        return open(file, false, name, type, definers);
+    }
+
+    /**
+     * Method opens report as stream of entities, input is copied into temporary file
+     * that is deleted when stream is closed. Input stream is not closed by this method
+     *
+     * @param in       - xlsx data, e.g. of uploaded file
+     * @param name     - sheet name, first sheet is read if null
+     * @param type     - entity class, should have no-argument constructor
+     * @param definers - defines data that was recorded
+     * @return stream of entities, read and conversion errors are thrown as {@link UncheckedIOException}
+     * and {@link IllegalArgumentException}
+     * @throws IOException if input can't be read or is not xlsx
+     */
+    public <T> Stream<T> read(InputStream in, String name, Class<T> type, List<ExportDefiner> definers)
+            throws IOException, ReflectiveOperationException {
+        Path file = Files.createTempFile(FILE_PREFIX, FILE_SUFFIX);
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return open(file, true, name, type, definers);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Method reads report and delivers entities in batches, e.g. to be saved by repository saveAll
+     *
+     * @param file      - xlsx file
+     * @param name      - sheet name, first sheet is read if null
+     * @param type      - entity class, should have no-argument constructor
+     * @param definers  - defines data that was recorded
+     * @param batchSize - number of entities in batch, last batch can be smaller
+     * @param batches   - consumer of batches, every batch is new list
+     * @return number of read entities
+     */
+    public <T> long read(Path file, String name, Class<T> type, List<ExportDefiner> definers, int batchSize,
+                         Consumer<? super List<T>> batches) throws IOException, ReflectiveOperationException {
+        return deliver(read(file, name, type, definers), batchSize, batches);
+    }
+
+    /**
+     * Method reads report and delivers entities in batches, e.g. to be saved by repository saveAll.
+     * Input stream is not closed by this method
+     *
+     * @param in        - xlsx data, e.g. of uploaded file
+     * @param name      - sheet name, first sheet is read if null
+     * @param type      - entity class, should have no-argument constructor
+     * @param definers  - defines data that was recorded
+     * @param batchSize - number of entities in batch, last batch can be smaller
+     * @param batches   - consumer of batches, every batch is new list
+     * @return number of read entities
+     */
+    public <T> long read(InputStream in, String name, Class<T> type, List<ExportDefiner> definers, int batchSize,
+                         Consumer<? super List<T>> batches) throws IOException, ReflectiveOperationException {
+        return deliver(read(in, name, type, definers), batchSize, batches);
+    }
+
+    private <T> Stream<T> open(Path file, boolean temporary, String name, Class<T> type,
+                               List<ExportDefiner> definers) throws IOException, ReflectiveOperationException {
+        ImportPlan<T> plan = ImportPlan.compile(type, definers);
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("File is not xlsx", e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            RowIterator<T> rows = new RowIterator<>(plan, (XSSFReader.SheetIterator) reader.getSheetsData(),
+                    new ReadOnlySharedStringsTable(pkg), reader.getStylesTable(), name);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                    false).onClose(() -> {
+                try {
+                    rows.close();
+                } finally {
+                    pkg.revert();
+                    if (temporary) {
+                        delete(file);
+                    }
+                }
+            });
+        } catch (OpenXML4JException | SAXException e) {
+            pkg.revert();
+            throw new IOException("File is not xlsx", e);
+        } catch (IOException | RuntimeException e) {
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    private static <T> long deliver(Stream<T> entities, int batchSize, Consumer<? super List<T>> batches)
+            throws IOException {
+        long count = 0;
+        try (Stream<T> stream = entities) {
+            List<T> batch = new ArrayList<>(batchSize);
+            for (Iterator<T> iterator = stream.iterator(); iterator.hasNext(); ) {
+                batch.add(iterator.next());
+                count++;
+                if (batch.size() == batchSize) {
+                    batches.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.accept(batch);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // file is still open on some systems
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Iterator over rows of report sheet and its continuation sheets
+     */
+    private static class RowIterator<T> implements Iterator<T>, AutoCloseable {
+
+        private final ImportPlan<T> plan;
+
+        private final XSSFReader.SheetIterator sheets;
+
+        private final SharedStrings strings;
+
+        private final StylesTable styles;
+
+        private String name;
+
+        private String sheetName;
+
+        private boolean started;
+
+        private InputStream sheet;
+
+        private SheetReader reader;
+
+        private ImportPlan.Leaf[] columns;
+
+        /**
+         * Last read rows, held back until it is known they are not summary rows at the end of report
+         */
+        private final Deque<PendingRow> pending = new ArrayDeque<>();
+
+        private T next;
+
+        private RowIterator(ImportPlan<T> plan, XSSFReader.SheetIterator sheets, SharedStrings strings,
+                            StylesTable styles, String name) {
+            this.plan = plan;
+            this.sheets = sheets;
+            this.strings = strings;
+            this.styles = styles;
+            this.name = name;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = advance();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (XMLStreamException e) {
+                    throw new UncheckedIOException(new IOException("Can't read sheet " + sheetName, e));
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T entity = next;
+            next = null;
+            return entity;
+        }
+
+        @Override
+        public void close() {
+            try {
+                closeSheet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private T advance() throws IOException, XMLStreamException {
+            while (true) {
+                if (reader == null && !openNextSheet()) {
+                    return null;
+                }
+                List<Object> cells = reader.nextRow();
+                if (cells == null) {
+                    closeSheet();
+                } else if (columns == null) {
+                    // rows above header, e.g. dividers, are skipped
+                    columns = plan.bind(cells);
+                } else if (plan.getSummaryRows() == 0) {
+                    if (!isBlank(cells)) {
+                        return read(columns, cells, reader.getRowNumber(), sheetName);
+                    }
+                } else {
+                    // rows still pending when report ends are summary rows, summary can continue on the next sheet
+                    pending.add(new PendingRow(columns, new ArrayList<>(cells), reader.getRowNumber(), sheetName));
+                    if (pending.size() > plan.getSummaryRows()) {
+                        PendingRow row = pending.poll();
+                        if (!isBlank(row.cells)) {
+                            return read(row.columns, row.cells, row.number, row.sheetName);
+                        }
+                    }
+                }
+            }
+        }
+
+        private T read(ImportPlan.Leaf[] columns, List<Object> cells, int number, String sheetName) {
+            try {
+                return plan.read(columns, cells);
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Can't import row " + number + " of sheet "
+                        + sheetName + ": " + e.getMessage(), e);
+            }
+        }
+
+        private boolean openNextSheet() throws IOException, XMLStreamException {
+            while (sheets.hasNext()) {
+                InputStream stream = sheets.next();
+                String current = sheets.getSheetName();
+                boolean matches = started
+                        ? SheetWriter.isNextSheet(name, current)
+                        : name == null || name.equals(current);
+                if (!matches) {
+                    stream.close();
+                    continue;
+                }
+                started = true;
+                name = name == null ? current : name;
+                sheetName = current;
+                sheet = stream;
+                reader = new SheetReader(stream, strings, styles);
+                columns = null;
+                return true;
+            }
+            if (!started) {
+                throw new IllegalArgumentException("There is no sheet " + name);
+            }
+            return false;
+        }
+
+        private void closeSheet() throws IOException {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Can't close sheet " + sheetName, e);
+            } finally {
+                reader = null;
+                if (sheet != null) {
+                    sheet.close();
+                    sheet = null;
+                }
+            }
+        }
+
+        private static boolean isBlank(List<Object> cells) {
+            for (Object cell : cells) {
+                if (cell != null && !"".equals(cell)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Row read ahead with columns of its sheet
+     */
+    private static final class PendingRow {
+
+        private final ImportPlan.Leaf[] columns;
+
+        private final List<Object> cells;
+
+        private final int number;
+
+        private final String sheetName;
+
+        private PendingRow(ImportPlan.Leaf[] columns, List<Object> cells, int number, String sheetName) {
+            this.columns = columns;
+            this.cells = cells;
+            this.number = number;
+            this.sheetName = sheetName;
+        }
+    }
+}
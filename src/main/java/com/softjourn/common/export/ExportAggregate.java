@@ -0,0 +1,34 @@
+package com.softjourn.common.export;
+
+/**
+ * Aggregate of numeric column that is written into summary row after exported rows.
+ * Name of aggregate is the name of spreadsheet function that calculates it
+ */
+public enum ExportAggregate {
+
+    SUM("Total"),
+
+    /**
+     * Number of numeric values
+     */
+    COUNT("Count"),
+
+    MIN("Min"),
+
+    MAX("Max"),
+
+    AVERAGE("Average");
+
+    private final String label;
+
+    ExportAggregate(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return label written into first column of summary row if that column doesn't have the aggregate
+     */
+    public String getLabel() {
+        return label;
+    }
+}
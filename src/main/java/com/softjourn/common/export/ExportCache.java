@@ -0,0 +1,458 @@
+package com.softjourn.common.export;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Cache of rendered reports in front of {@link StreamingExportService}, so report that is downloaded many times
+ * is rendered once per version of its data.
+ * Report is identified by name, version of data supplied by caller (e.g. last modification time or counter of changes)
+ * and definers tree, the same fingerprint is used as ETag of report.
+ * Rendered reports are kept in files, least recently used reports are removed when total size exceeds budget
+ * and reports older than time to live are rendered again. Concurrent requests of the same report wait for one render.
+ * Cache is not registered as bean by itself, it should be declared with budget that fits application.
+ * <pre>
+ * String etag = exportCache.getETag("orders", version, definers);
+ * if (ExportCache.matches(request.getHeader("If-None-Match"), etag)) {
+ *     response.setStatus(304);
+ * } else {
+ *     response.setHeader("ETag", etag);
+ *     exportCache.export("orders", version, definers, () -&gt; repository.findAll(), response.getOutputStream());
+ * }
+ * </pre>
+ */
+public class ExportCache {
+
+    private static final String FILE_PREFIX = "export-cache-";
+
+    private static final String FILE_SUFFIX = ".tmp";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StreamingExportService exportService;
+
+    private final long maxBytes;
+
+    private final Duration timeToLive;
+
+    private final Path directory;
+
+    private final Clock clock;
+
+    /**
+     * Cached reports by key in access order, guarded by this
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, CompletableFuture<Entry>> renders = new ConcurrentHashMap<>();
+
+    /**
+     * Total size of cached files, guarded by this
+     */
+    private long size;
+
+    /**
+     * @param exportService - export used to render reports
+     * @param maxBytes      - total size of cached reports
+     * @param timeToLive    - time report is served from cache after it was rendered
+     */
+    public ExportCache(StreamingExportService exportService, long maxBytes, Duration timeToLive) {
+        this(exportService, maxBytes, timeToLive, null);
+    }
+
+    /**
+     * @param exportService - export used to render reports
+     * @param maxBytes      - total size of cached reports
+     * @param timeToLive    - time report is served from cache after it was rendered
+     * @param directory     - directory of cached files, default temporary directory is used if null
+     */
+    public ExportCache(StreamingExportService exportService, long maxBytes, Duration timeToLive, Path directory) {
+        this(exportService, maxBytes, timeToLive, directory, Clock.systemUTC());
+    }
+
+    ExportCache(StreamingExportService exportService, long maxBytes, Duration timeToLive, Path directory, Clock clock) {
+        this.exportService = exportService;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /**
+     * Method writes report into output stream, report is rendered only if it is not cached yet.
+     * Stream is not closed by this method
+     *
+     * @param name     - report name
+     * @param version  - version of data, report is rendered again when version changes
+     * @param entities - supplier of data, called only when report is rendered
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     * @return ETag of report
+     */
+    public <T> String export(String name, String version, List<ExportDefiner> definers,
+                             Supplier<? extends List<T>> entities, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        String key = fingerprint(name, version, definers);
+        Entry entry = acquire(key, name, definers, entities);
+        try (FileChannel channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+            release(entry);
+            entry = null;
+            // file is kept open, so it can be read even if entry is evicted meanwhile
+            WritableByteChannel target = Channels.newChannel(out);
+            long length = channel.size();
+            for (long position = 0; position < length; ) {
+                position += channel.transferTo(position, length - position, target);
+            }
+        } finally {
+            if (entry != null) {
+                release(entry);
+            }
+        }
+        return etag(key);
+    }
+
+    /**
+     * @param name     - report name
+     * @param version  - version of data
+     * @param definers - defines data to be recorded
+     * @return quoted ETag of report, doesn't depend on whether report is cached
+     */
+    public String getETag(String name, String version, List<ExportDefiner> definers) {
+        return etag(fingerprint(name, version, definers));
+    }
+
+    /**
+     * Method checks value of If-None-Match header
+     *
+     * @param ifNoneMatch - value of header, can be null
+     * @param etag        - ETag of report
+     * @return true if client already has report and it shouldn't be sent again
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return total size of cached reports in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of cached reports
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * Method removes all reports, reports that are being downloaded are deleted when download is done
+     */
+    @PreDestroy
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Method calculates fingerprint of report
+     *
+     * @param name     - report name
+     * @param version  - version of data
+     * @param definers - defines data to be recorded
+     * @return hex of SHA-256 digest
+     */
+    String fingerprint(String name, String version, List<ExportDefiner> definers) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        update(digest, exportService.getClass().getName());
+        update(digest, name);
+        update(digest, version);
+        update(digest, definers);
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private <T> Entry acquire(String key, String name, List<ExportDefiner> definers,
+                              Supplier<? extends List<T>> entities) throws IOException, ReflectiveOperationException {
+        while (true) {
+            Entry entry = retain(key);
+            if (entry != null) {
+                return entry;
+            }
+            CompletableFuture<Entry> render = new CompletableFuture<>();
+            CompletableFuture<Entry> running = renders.putIfAbsent(key, render);
+            if (running == null) {
+                try {
+                    entry = render(key, name, definers, entities);
+                    render.complete(entry);
+                    return entry;
+                } catch (IOException | ReflectiveOperationException | RuntimeException | Error e) {
+                    render.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    renders.remove(key, render);
+                }
+            }
+            entry = await(running);
+            // report that is bigger than budget is evicted right after render, then it is rendered again
+            if (retain(entry)) {
+                return entry;
+            }
+        }
+    }
+
+    private <T> Entry render(String key, String name, List<ExportDefiner> definers,
+                             Supplier<? extends List<T>> entities) throws IOException, ReflectiveOperationException {
+        Path file = directory == null
+                ? Files.createTempFile(FILE_PREFIX, FILE_SUFFIX)
+                : Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                exportService.export(name, entities.get(), definers, out);
+            }
+        } catch (IOException | ReflectiveOperationException | RuntimeException | Error e) {
+            delete(file);
+            throw e;
+        }
+        Entry entry = new Entry(key, file, Files.size(file), clock.millis());
+        put(entry);
+        return entry;
+    }
+
+    private synchronized Entry retain(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            evict(entry);
+            return null;
+        }
+        entry.readers++;
+        return entry;
+    }
+
+    private synchronized boolean retain(Entry entry) {
+        if (entry.evicted) {
+            return false;
+        }
+        entry.readers++;
+        return true;
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.readers--;
+        if (entry.evicted && entry.readers == 0) {
+            delete(entry.file);
+        }
+    }
+
+    private synchronized void put(Entry entry) {
+        Entry previous = entries.get(entry.key);
+        if (previous != null) {
+            evict(previous);
+        }
+        // renderer reads entry before anyone else can evict it
+        entry.readers++;
+        entries.put(entry.key, entry);
+        size += entry.size;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > maxBytes && eldest.hasNext()) {
+            Entry candidate = eldest.next();
+            eldest.remove();
+            discard(candidate);
+        }
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            Entry candidate = iterator.next();
+            if (isExpired(candidate)) {
+                iterator.remove();
+                discard(candidate);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        entries.remove(entry.key, entry);
+        discard(entry);
+    }
+
+    /**
+     * Method marks entry removed from map, its file is deleted when nobody reads it
+     */
+    private void discard(Entry entry) {
+        if (!entry.evicted) {
+            entry.evicted = true;
+            size -= entry.size;
+            if (entry.readers == 0) {
+                delete(entry.file);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return timeToLive != null && clock.millis() - entry.created >= timeToLive.toMillis();
+    }
+
+    private static Entry await(CompletableFuture<Entry> render) throws IOException, ReflectiveOperationException {
+        try {
+            return render.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for report");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private static void update(MessageDigest digest, List<ExportDefiner> definers) {
+        if (definers == null) {
+            update(digest, -1);
+            return;
+        }
+        update(digest, definers.size());
+        for (ExportDefiner definer : definers) {
+            update(digest, definer.getName());
+            update(digest, definer.getHeader());
+            update(digest, definer.getFormat());
+            Class[] classes = definer.getClasses();
+            update(digest, classes == null ? -1 : classes.length);
+            if (classes != null) {
+                for (Class type : classes) {
+                    update(digest, type == null ? null : type.getName());
+                }
+            }
+            Object[] parameters = definer.getParameters();
+            update(digest, parameters == null ? -1 : parameters.length);
+            if (parameters != null) {
+                for (Object parameter : parameters) {
+                    update(digest, parameter == null ? null : String.valueOf(parameter));
+                }
+            }
+            List<ExportAggregate> aggregates = definer.getAggregates();
+            update(digest, aggregates == null ? -1 : aggregates.size());
+            if (aggregates != null) {
+                for (ExportAggregate aggregate : aggregates) {
+                    update(digest, aggregate == null ? null : aggregate.name());
+                }
+            }
+            update(digest, definer.getDefiners());
+        }
+    }
+
+    /**
+     * Method adds string with its length, so different sequences of strings can't have the same digest
+     */
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            update(digest, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void update(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private static String etag(String key) {
+        return '"' + key + '"';
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // file is still open on some systems
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+
+        private final Path file;
+
+        private final long size;
+
+        private final long created;
+
+        /**
+         * Number of requests that are going to read file, guarded by cache
+         */
+        private int readers;
+
+        /**
+         * Entry is removed from cache, guarded by cache
+         */
+        private boolean evicted;
+
+        private Entry(String key, Path file, long size, long created) {
+            this.key = key;
+            this.file = file;
+            this.size = size;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.softjourn.common.export;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks field or getter which value is exported as column.
+ * Row writer that calls getters directly is generated at compile time for every class with such members,
+ * private fields are read through getter (written or generated by lombok).
+ * Columns are ordered by {@link #order()} and then by declaration order, columns of superclass go first
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ExportColumn {
+
+    /**
+     * @return header of column
+     */
+    String value();
+
+    /**
+     * @return position of column among columns of the same class
+     */
+    int order() default 0;
+
+    /**
+     * @return Excel data format of column, e.g. "0.00" or "yyyy-mm-dd", empty for default one
+     */
+    String format() default "";
+}
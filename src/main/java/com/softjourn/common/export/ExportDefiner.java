@@ -10,7 +10,7 @@ import java.util.List;
 public class ExportDefiner {
 
     /**
-     * Name of field or method
+     * Name of field or method, or dot path to field or method of nested object, e.g. "customer.address.city"
      */
     private final String name;
 
@@ -34,6 +34,17 @@ public class ExportDefiner {
      */
     Object[] parameters;
 
+    /**
+     * Excel data format of column, e.g. "#,##0.00" or "yyyy-mm-dd"
+     */
+    String format;
+
+    /**
+     * Aggregates of column written into summary rows after exported rows, e.g. SUM and AVERAGE of amount.
+     * They are accumulated while rows are written, so entities are read once
+     */
+    List<ExportAggregate> aggregates;
+
     public ExportDefiner(String name, String header) {
         this.name = name;
         this.header = header;
@@ -56,6 +67,8 @@ public class ExportDefiner {
                 ", definers=" + definers +
                 ", classes=" + Arrays.toString(classes) +
                 ", parameters=" + Arrays.toString(parameters) +
+                ", format='" + format + '\'' +
+                ", aggregates=" + aggregates +
                 '}';
     }
 }
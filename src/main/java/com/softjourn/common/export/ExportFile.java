@@ -0,0 +1,116 @@
+package com.softjourn.common.export;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Report rendered into temporary file, so it doesn't have to be held in heap until it is sent.
+ * File is sent without copying it through user space only into channel that kernel can write into directly,
+ * i.e. {@link java.nio.channels.SocketChannel} or other channel of socket, e.g. of NIO server response.
+ * Output stream, e.g. of servlet response, is written through buffer copy.
+ * File is deleted when it is transferred or when export file is closed.
+ * <pre>
+ * try (ExportFile file = excelExport.exportToFile("orders", orders, definers, options)) {
+ *     file.transferTo(response.getOutputStream());
+ * }
+ * </pre>
+ */
+public class ExportFile implements AutoCloseable {
+
+    private final Path path;
+
+    ExportFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return path of temporary file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return size of report in bytes
+     */
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
+    /**
+     * Method transfers report into channel by {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * kernel sends file directly only if channel is socket channel, other channels are written through buffer.
+     * File is deleted when transfer is done or failed
+     *
+     * @param target - channel, e.g. socket channel of response, channel is not closed by this method
+     * @return number of transferred bytes
+     * @throws IOException if transfer fails, e.g. client closed connection
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Method copies report into output stream through buffer, file is deleted when transfer is done or failed
+     *
+     * @param out - output stream, stream is not closed by this method
+     * @return number of transferred bytes
+     * @throws IOException if transfer fails, e.g. client closed connection
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        return transferTo(Channels.newChannel(out));
+    }
+
+    /**
+     * Method maps report into memory, mapping stays valid after file is deleted on most systems
+     *
+     * @return read only buffer of report
+     */
+    public MappedByteBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Method returns resource of report, e.g. to be returned from controller, that supports HTTP range requests.
+     * Resource can be opened once per range, so file is kept until export file is closed,
+     * e.g. when response is completed
+     *
+     * @return Resource
+     */
+    public Resource toResource() {
+        return new FileSystemResource(path);
+    }
+
+    /**
+     * Method deletes file
+     */
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // file is still open on some systems
+            path.toFile().deleteOnExit();
+        }
+    }
+}
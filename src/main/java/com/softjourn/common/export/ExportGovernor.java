@@ -0,0 +1,394 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Admission control of concurrent exports by memory budget.
+ * Memory of export is estimated from number of rows and columns: workbook held in memory needs all its cells,
+ * streaming workbook needs its row access window and CSV needs single row. Export gets permit when its estimate
+ * fits into budget that is not used by other exports, otherwise it waits, is rejected
+ * or is downgraded to mode that needs less memory, depending on policy.
+ * Waiting exports are admitted in order of arrival, so large export is not starved by small ones.
+ * Export that is larger than whole budget is admitted alone.
+ * Governor is not registered as bean by itself, it should be declared with budget that fits heap of node.
+ * {@link ExportJobService} acquires permits for its jobs, direct exports acquire them by caller:
+ * <pre>
+ * try (ExportGovernor.Permit permit = exportGovernor.acquire(count, definers, ExportGovernor.Mode.WORKBOOK, options)) {
+ *     if (permit.getMode() == ExportGovernor.Mode.WORKBOOK) {
+ *         excelExport.export(name, entities, definers).write(out);
+ *     } else if (permit.getMode() == ExportGovernor.Mode.STREAMING) {
+ *         excelExport.export(name, entities, definers, options, out);
+ *     } else {
+ *         csvExport.export(name, entities, definers, out);
+ *     }
+ * }
+ * </pre>
+ */
+public class ExportGovernor {
+
+    /**
+     * Approximate heap size of cell of workbook held in memory, including its value and row overhead
+     */
+    public static final int DEFAULT_BYTES_PER_CELL = 200;
+
+    /**
+     * Mode of export from the most to the least memory consuming
+     */
+    public enum Mode {
+
+        /**
+         * Workbook is held in memory, e.g. HSSF export
+         */
+        WORKBOOK,
+
+        /**
+         * Streaming workbook that keeps window of rows in memory
+         */
+        STREAMING,
+
+        /**
+         * CSV written row by row
+         */
+        CSV
+    }
+
+    /**
+     * What happens with export that doesn't fit into free budget
+     */
+    public enum Policy {
+
+        /**
+         * Export waits until other exports release budget, it is rejected if it waits longer than max wait time
+         */
+        QUEUE,
+
+        /**
+         * Export is rejected immediately
+         */
+        REJECT,
+
+        /**
+         * Export is downgraded to less memory consuming mode that fits, it waits if no mode fits
+         */
+        DOWNGRADE
+    }
+
+    private final long budget;
+
+    private final int bytesPerCell;
+
+    private final Policy policy;
+
+    private final Duration maxWait;
+
+    /**
+     * Tickets of waiting exports in order of arrival, guarded by this
+     */
+    private final Deque<Object> queue = new ArrayDeque<>();
+
+    private long used;
+
+    private int inFlight;
+
+    private long admitted;
+
+    private long rejected;
+
+    private long downgraded;
+
+    private long totalWaitNanos;
+
+    private long maxWaitNanos;
+
+    /**
+     * @param budget  - bytes of heap that all exports can use at the same time
+     * @param policy  - what happens with export that doesn't fit into free budget
+     * @param maxWait - max time export waits for budget
+     */
+    public ExportGovernor(long budget, Policy policy, Duration maxWait) {
+        this(budget, DEFAULT_BYTES_PER_CELL, policy, maxWait);
+    }
+
+    /**
+     * @param budget       - bytes of heap that all exports can use at the same time
+     * @param bytesPerCell - estimated bytes of heap per cell of workbook
+     * @param policy       - what happens with export that doesn't fit into free budget
+     * @param maxWait      - max time export waits for budget
+     */
+    public ExportGovernor(long budget, int bytesPerCell, Policy policy, Duration maxWait) {
+        if (budget <= 0 || bytesPerCell <= 0) {
+            throw new IllegalArgumentException("Budget and bytes per cell should be positive");
+        }
+        this.budget = budget;
+        this.bytesPerCell = bytesPerCell;
+        this.policy = policy;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Method waits for permit of export of entities by definers
+     *
+     * @param rows     - number of exported rows
+     * @param definers - defines data to be recorded
+     * @param mode     - requested mode
+     * @return Permit that should be closed when export is done
+     * @throws RejectedExecutionException if export doesn't fit into budget and it can't wait any longer
+     */
+    public Permit acquire(long rows, List<ExportDefiner> definers, Mode mode) throws InterruptedException {
+        return acquire(rows, ExportPlan.of(definers).getColumnCount(), mode);
+    }
+
+    /**
+     * Method waits for permit of export of entities by definers with options
+     *
+     * @param rows     - number of exported rows
+     * @param definers - defines data to be recorded
+     * @param mode     - requested mode
+     * @param options  - export options, streaming export keeps their row access window in memory
+     * @return Permit that should be closed when export is done
+     * @throws RejectedExecutionException if export doesn't fit into budget and it can't wait any longer
+     */
+    public Permit acquire(long rows, List<ExportDefiner> definers, Mode mode, ExportOptions options)
+            throws InterruptedException {
+        return acquire(rows, ExportPlan.of(definers).getColumnCount(), options.getRowAccessWindowSize(), mode, Mode.CSV);
+    }
+
+    /**
+     * Method waits for permit of export
+     *
+     * @param rows    - number of exported rows
+     * @param columns - number of columns
+     * @param mode    - requested mode
+     * @return Permit that should be closed when export is done
+     * @throws RejectedExecutionException if export doesn't fit into budget and it can't wait any longer
+     */
+    public Permit acquire(long rows, int columns, Mode mode) throws InterruptedException {
+        return acquire(rows, columns, SXSSFWorkbook.DEFAULT_WINDOW_SIZE, mode, Mode.CSV);
+    }
+
+    /**
+     * Method waits for permit of export that can't run in every mode, e.g. export that has to produce workbook
+     *
+     * @param rows    - number of exported rows
+     * @param columns - number of columns
+     * @param window  - number of rows streaming workbook keeps in memory
+     * @param mode    - requested mode
+     * @param lowest  - least memory consuming mode export can be downgraded to
+     * @return Permit that should be closed when export is done
+     * @throws RejectedExecutionException if export doesn't fit into budget and it can't wait any longer
+     */
+    public synchronized Permit acquire(long rows, int columns, int window, Mode mode, Mode lowest)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = maxWait == null ? Long.MAX_VALUE : start + maxWait.toNanos();
+        Object ticket = new Object();
+        queue.addLast(ticket);
+        try {
+            while (true) {
+                Mode granted = queue.peekFirst() == ticket ? fit(rows, columns, window, mode, lowest) : null;
+                if (granted != null) {
+                    long waited = System.nanoTime() - start;
+                    long bytes = Math.min(estimate(rows, columns, granted, window), budget);
+                    used += bytes;
+                    inFlight++;
+                    admitted++;
+                    downgraded += granted != mode ? 1 : 0;
+                    totalWaitNanos += waited;
+                    maxWaitNanos = Math.max(maxWaitNanos, waited);
+                    return new Permit(granted, bytes, Duration.ofNanos(waited));
+                }
+                long remaining = deadline - System.nanoTime();
+                if (policy == Policy.REJECT || remaining <= 0) {
+                    rejected++;
+                    throw new RejectedExecutionException("Export of " + rows + " rows doesn't fit into free memory budget, "
+                            + (budget - used) + " of " + budget + " bytes are free");
+                }
+                // woken up when permit is released or export ahead of this one is admitted
+                wait(Math.max(1, remaining / 1_000_000));
+            }
+        } finally {
+            queue.remove(ticket);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Method estimates heap used by export, streaming export keeps default row access window in memory
+     *
+     * @param rows    - number of exported rows
+     * @param columns - number of columns
+     * @param mode    - mode of export
+     * @return bytes
+     */
+    public long estimate(long rows, int columns, Mode mode) {
+        return estimate(rows, columns, mode, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Method estimates heap used by export
+     *
+     * @param rows    - number of exported rows
+     * @param columns - number of columns
+     * @param mode    - mode of export
+     * @param window  - number of rows streaming workbook keeps in memory, see {@link ExportOptions#getRowAccessWindowSize()},
+     *                negative for unlimited window that keeps all rows
+     * @return bytes, {@link Long#MAX_VALUE} if estimate overflows, e.g. for unknown number of rows
+     */
+    public long estimate(long rows, int columns, Mode mode, int window) {
+        long rowsInMemory;
+        switch (mode) {
+            case WORKBOOK:
+                rowsInMemory = rows;
+                break;
+            case STREAMING:
+                rowsInMemory = window < 0 ? rows : Math.min(rows, window);
+                break;
+            default:
+                rowsInMemory = 1;
+        }
+        try {
+            return Math.multiplyExact(Math.multiplyExact(Math.max(1, rowsInMemory), (long) Math.max(1, columns)),
+                    bytesPerCell);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return bytes of budget used by running exports
+     */
+    public synchronized long getUsedBytes() {
+        return used;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return number of running exports
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return number of exports that wait for budget
+     */
+    public synchronized int getWaiting() {
+        return queue.size();
+    }
+
+    /**
+     * @return number of exports that got permit
+     */
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * @return number of rejected exports
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return number of exports that got permit for less memory consuming mode than requested
+     */
+    public synchronized long getDowngraded() {
+        return downgraded;
+    }
+
+    /**
+     * @return average time admitted exports waited for permit
+     */
+    public synchronized Duration getAverageWait() {
+        return admitted == 0 ? Duration.ZERO : Duration.ofNanos(totalWaitNanos / admitted);
+    }
+
+    /**
+     * @return max time admitted export waited for permit
+     */
+    public synchronized Duration getMaxWait() {
+        return Duration.ofNanos(maxWaitNanos);
+    }
+
+    /**
+     * @return mode that fits into free budget or null if export should wait
+     */
+    private Mode fit(long rows, int columns, int window, Mode mode, Mode lowest) {
+        Mode[] modes = Mode.values();
+        int last = policy == Policy.DOWNGRADE ? Math.max(mode.ordinal(), lowest.ordinal()) : mode.ordinal();
+        for (int i = mode.ordinal(); i <= last; i++) {
+            long bytes = Math.min(estimate(rows, columns, modes[i], window), budget);
+            if (used + bytes <= budget) {
+                return modes[i];
+            }
+        }
+        return null;
+    }
+
+    private synchronized void release(Permit permit) {
+        used -= permit.bytes;
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Permit of running export, budget is released when permit is closed
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final Mode mode;
+
+        private final long bytes;
+
+        private final Duration waitTime;
+
+        private boolean released;
+
+        private Permit(Mode mode, long bytes, Duration waitTime) {
+            this.mode = mode;
+            this.bytes = bytes;
+            this.waitTime = waitTime;
+        }
+
+        /**
+         * @return mode export should run in, it can be less memory consuming than requested
+         */
+        public Mode getMode() {
+            return mode;
+        }
+
+        /**
+         * @return bytes of budget reserved for export
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return time export waited for permit
+         */
+        public Duration getWaitTime() {
+            return waitTime;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ExportGovernor.this) {
+                if (!released) {
+                    released = true;
+                    release(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.softjourn.common.export;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle of export submitted to {@link ExportJobService}.
+ * Result is completed with temporary file of report when export is done,
+ * with {@link java.util.concurrent.CancellationException} when job is cancelled
+ * or with exception export failed with.
+ */
+public class ExportJob {
+
+    private final String id;
+
+    private final String name;
+
+    private final CompletableFuture<Path> result = new CompletableFuture<>();
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    private volatile Future<?> task;
+
+    ExportJob(String id, String name) {
+        this.id = id;
+        this.name = name;
+        // cancelling of result cancels export too
+        result.whenComplete((file, e) -> {
+            if (result.isCancelled()) {
+                cancel();
+            }
+        });
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return future completed with temporary file of report, file is deleted when job is removed from service
+     */
+    public CompletableFuture<Path> getResult() {
+        return result;
+    }
+
+    /**
+     * @return number of rows written so far, it is updated after every chunk of rows
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Method cancels job, running export is interrupted and stopped after current chunk of rows
+     *
+     * @return boolean - false if job is already completed
+     */
+    public boolean cancel() {
+        Future<?> current = task;
+        boolean cancelled = current != null && current.cancel(true);
+        return result.cancel(false) || cancelled;
+    }
+
+    void setTask(Future<?> task) {
+        this.task = task;
+    }
+
+    void setRowsWritten(long rows) {
+        rowsWritten.set(rows);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", rowsWritten=" + rowsWritten +
+                ", done=" + isDone() +
+                '}';
+    }
+}
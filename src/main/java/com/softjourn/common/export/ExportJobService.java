@@ -0,0 +1,270 @@
+package com.softjourn.common.export;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Runs exports in background on bounded pool of threads, so request threads don't wait for report.
+ * Every export is written into temporary xlsx file that can be downloaded when job is done.
+ * Files of jobs are kept until job is removed or service is shut down.
+ * If service has {@link ExportGovernor}, every job waits on its thread for permit of streaming export
+ * before it is rendered.
+ * Service is not registered as bean by itself, it should be declared with pool size that fits application.
+ */
+public class ExportJobService {
+
+    private final ExcelExport excelExport;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Path directory;
+
+    private final ExportGovernor governor;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param excelExport   - export used to render reports
+     * @param threads       - number of exports that run at the same time
+     * @param queueCapacity - number of exports that wait for free thread, other submits are rejected
+     */
+    public ExportJobService(ExcelExport excelExport, int threads, int queueCapacity) {
+        this(excelExport, threads, queueCapacity, null);
+    }
+
+    /**
+     * @param excelExport   - export used to render reports
+     * @param threads       - number of exports that run at the same time
+     * @param queueCapacity - number of exports that wait for free thread, other submits are rejected
+     * @param directory     - directory of report files, default temporary directory is used if null
+     */
+    public ExportJobService(ExcelExport excelExport, int threads, int queueCapacity, Path directory) {
+        this(excelExport, threads, queueCapacity, directory, null);
+    }
+
+    /**
+     * @param excelExport   - export used to render reports
+     * @param threads       - number of exports that run at the same time
+     * @param queueCapacity - number of exports that wait for free thread, other submits are rejected
+     * @param directory     - directory of report files, default temporary directory is used if null
+     * @param governor      - admission control of jobs by memory budget, jobs are not limited by memory if null
+     */
+    public ExportJobService(ExcelExport excelExport, int threads, int queueCapacity, Path directory,
+                            ExportGovernor governor) {
+        this.excelExport = excelExport;
+        this.directory = directory;
+        this.governor = governor;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ExportThreadFactory());
+    }
+
+    /**
+     * Method submits export of entities
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options, chunk listener of options is notified from export thread
+     * @return ExportJob
+     * @throws RejectedExecutionException if there are too many exports in queue
+     */
+    public <T> ExportJob submit(String name, List<T> entities, List<ExportDefiner> definers, ExportOptions options) {
+        return submit(name, (out, jobOptions) -> {
+            try (ExportGovernor.Permit ignored = admit(entities == null ? 0 : entities.size(), definers, jobOptions)) {
+                excelExport.export(name, entities, definers, jobOptions, out);
+            }
+        }, options);
+    }
+
+    /**
+     * Method submits export of entities that are loaded by export thread,
+     * e.g. repository stream that has to be opened and read in the same transaction
+     *
+     * @param name     - sheet name
+     * @param entities - supplier of data, stream is closed after export
+     * @param definers - defines data to be recorded
+     * @param options  - export options, chunk listener of options is notified from export thread
+     * @return ExportJob
+     * @throws RejectedExecutionException if there are too many exports in queue
+     */
+    public <T> ExportJob submit(String name, Supplier<? extends Stream<T>> entities, List<ExportDefiner> definers,
+                                ExportOptions options) {
+        return submit(name, (out, jobOptions) -> {
+            // number of rows is unknown, streaming export keeps at most its window in memory anyway
+            try (ExportGovernor.Permit ignored = admit(Long.MAX_VALUE, definers, jobOptions);
+                 Stream<T> stream = entities.get()) {
+                excelExport.export(name, stream, definers, jobOptions, out);
+            }
+        }, options);
+    }
+
+    /**
+     * @param id - job id
+     * @return job if it was not removed
+     */
+    public Optional<ExportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * @return all jobs that were not removed
+     */
+    public Collection<ExportJob> getJobs() {
+        return Collections.unmodifiableCollection(jobs.values());
+    }
+
+    /**
+     * Method removes job, cancels it if it is still running and deletes its file
+     *
+     * @param id - job id
+     * @return removed job
+     */
+    public Optional<ExportJob> remove(String id) {
+        ExportJob job = jobs.remove(id);
+        if (job != null) {
+            job.cancel();
+            job.getResult().thenAccept(ExportJobService::delete);
+        }
+        return Optional.ofNullable(job);
+    }
+
+    /**
+     * Method stops all running exports and deletes files of all jobs
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        for (ExportJob job : new ArrayList<>(jobs.values())) {
+            remove(job.getId());
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Method waits for permit of streaming export, jobs write workbooks, so they are never downgraded to CSV
+     *
+     * @return Permit or null if service doesn't have governor
+     */
+    private ExportGovernor.Permit admit(long rows, List<ExportDefiner> definers, ExportOptions options)
+            throws InterruptedException {
+        if (governor == null) {
+            return null;
+        }
+        return governor.acquire(rows, ExportPlan.of(definers).getColumnCount(), options.getRowAccessWindowSize(),
+                ExportGovernor.Mode.STREAMING, ExportGovernor.Mode.STREAMING);
+    }
+
+    private ExportJob submit(String name, ExportTask export, ExportOptions options) {
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), name);
+        ExportOptions jobOptions = options.copy();
+        LongConsumer listener = options.getChunkListener();
+        jobOptions.setChunkListener(rows -> {
+            job.setRowsWritten(rows);
+            if (listener != null) {
+                listener.accept(rows);
+            }
+            // checked on chunk boundaries because export can run on threads that are not interrupted
+            if (job.getResult().isCancelled()) {
+                throw new CancellationException("Export " + job.getId() + " is cancelled");
+            }
+        });
+        FutureTask<Path> task = new FutureTask<Path>(() -> run(export, jobOptions)) {
+            @Override
+            protected void done() {
+                complete(job, this);
+            }
+        };
+        job.setTask(task);
+        executor.execute(task);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private Path run(ExportTask export, ExportOptions options) throws Exception {
+        Path file = directory == null
+                ? Files.createTempFile(ExcelExport.FILE_PREFIX, ExcelExport.FILE_SUFFIX)
+                : Files.createTempFile(directory, ExcelExport.FILE_PREFIX, ExcelExport.FILE_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(file)) {
+                export.export(out, options);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            return file;
+        } catch (Exception | Error e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    private static void complete(ExportJob job, FutureTask<Path> task) {
+        if (task.isCancelled()) {
+            job.getResult().cancel(false);
+            return;
+        }
+        try {
+            Path file = task.get();
+            if (!job.getResult().complete(file)) {
+                delete(file);
+            }
+        } catch (ExecutionException e) {
+            job.getResult().completeExceptionally(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // file is still open on some systems
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Export of report into output stream
+     */
+    @FunctionalInterface
+    private interface ExportTask {
+
+        void export(OutputStream out, ExportOptions options) throws Exception;
+    }
+
+    private static class ExportThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "export-job-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
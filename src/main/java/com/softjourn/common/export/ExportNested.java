@@ -0,0 +1,22 @@
+package com.softjourn.common.export;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks field or getter which value is object with its own {@link ExportColumn} members,
+ * these columns are exported in place of this member and are left empty when value is null
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ExportNested {
+
+    /**
+     * @return position of nested columns among columns of the same class
+     */
+    int order() default 0;
+}
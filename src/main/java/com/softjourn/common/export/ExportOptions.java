@@ -0,0 +1,81 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+/**
+ * Options of single export call
+ */
+@Data
+public class ExportOptions {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    public static final int DEFAULT_ROWS_PER_SHARD = 10_000;
+
+    /**
+     * Number of rows kept in memory by streaming workbook
+     */
+    private int rowAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Number of rows after which chunk listener is notified
+     */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Listener that is called with number of written rows after every chunk and after last row,
+     * e.g. to clear persistence context so written entities can be garbage collected
+     */
+    private LongConsumer chunkListener;
+
+    /**
+     * Executor to extract and convert values of entity chunks in parallel, rows are still written sequentially.
+     * When set entities are read by executor threads, so lazy associations should be initialized before export.
+     * Rows are rendered on calling thread if executor is not set
+     */
+    private Executor executor;
+
+    /**
+     * Maximum number of chunks that are rendered or wait for writing at the same time
+     */
+    private int maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * How widths of columns are calculated, auto sizing by sheet is exact but slow for large sheets
+     */
+    private ColumnWidth columnWidth = ColumnWidth.exact();
+
+    /**
+     * Max number of data rows on one sheet, when it is reached (or row limit of workbook format is reached)
+     * writing continues on next sheet "name_2", "name_3" and so on with repeated header.
+     * Only row limit of workbook format is applied if value is not positive
+     */
+    private int rowsPerSheet;
+
+    /**
+     * Number of rows rendered and compressed as one part by {@link ShardedXlsxExport},
+     * larger shards compress slightly better and smaller ones are spread across threads more evenly
+     */
+    private int rowsPerShard = DEFAULT_ROWS_PER_SHARD;
+
+    /**
+     * @return options with the same values
+     */
+    ExportOptions copy() {
+        ExportOptions copy = new ExportOptions();
+        copy.setRowAccessWindowSize(rowAccessWindowSize);
+        copy.setChunkSize(chunkSize);
+        copy.setChunkListener(chunkListener);
+        copy.setExecutor(executor);
+        copy.setMaxChunksInFlight(maxChunksInFlight);
+        copy.setColumnWidth(columnWidth);
+        copy.setRowsPerSheet(rowsPerSheet);
+        copy.setRowsPerShard(rowsPerShard);
+        return copy;
+    }
+
+}
@@ -0,0 +1,323 @@
+package com.softjourn.common.export;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled form of {@link ExportDefiner} tree.
+ * Column positions are calculated once and every field or method is resolved once per entity class
+ * into method handle, so filling row doesn't do any reflective lookups.
+ * Definers of the same nested object, declared as nested definers or as dot paths like "customer.address.city",
+ * are merged into one node, so getter of nested object is invoked once per row
+ * and all columns of nested object that is null are left empty without invoking its getters.
+ * Accessors are shared by all plans, so compiling plan is cheap; plan doesn't track later changes of definers,
+ * keep it to export the same definers many times.
+ */
+public final class ExportPlan implements ExportRowWriter<Object> {
+
+    /**
+     * Accessors resolved for entity class by field or method signature
+     */
+    private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final List<Node> nodes;
+
+    private final List<String> headers;
+
+    private final List<String> formats;
+
+    private final List<List<ExportAggregate>> aggregates;
+
+    private ExportPlan(List<Node> nodes, List<String> headers, List<String> formats,
+                       List<List<ExportAggregate>> aggregates) {
+        this.nodes = nodes;
+        this.headers = Collections.unmodifiableList(headers);
+        this.formats = Collections.unmodifiableList(formats);
+        this.aggregates = Collections.unmodifiableList(aggregates);
+    }
+
+    /**
+     * Method compiles current state of definers into new plan
+     *
+     * @param definers - defines data to be recorded
+     * @return ExportPlan
+     */
+    public static ExportPlan of(List<ExportDefiner> definers) {
+        List<String> headers = new ArrayList<>();
+        List<String> formats = new ArrayList<>();
+        List<List<ExportAggregate>> aggregates = new ArrayList<>();
+        List<Node> nodes = compile(definers, headers, formats, aggregates);
+        return new ExportPlan(nodes, headers, formats, aggregates);
+    }
+
+    /**
+     * @return headers of leaf columns in order they will be written
+     */
+    @Override
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return data formats of leaf columns, null for columns without format
+     */
+    @Override
+    public List<String> getFormats() {
+        return formats;
+    }
+
+    /**
+     * @return aggregates of leaf columns, null for columns without aggregates
+     */
+    @Override
+    public List<List<ExportAggregate>> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return number of columns in row
+     */
+    @Override
+    public int getColumnCount() {
+        return headers.size();
+    }
+
+    /**
+     * Method fills row with values of entity, values of nested objects that are null are left null
+     *
+     * @param entity - data
+     * @param row    - array to fill, should have at least {@link #getColumnCount()} length
+     * @throws ReflectiveOperationException if field or method can't be found or invoked
+     */
+    @Override
+    public void extract(Object entity, Object[] row) throws ReflectiveOperationException {
+        for (Node node : nodes) {
+            extract(node, entity, row);
+        }
+    }
+
+    private static List<Node> compile(List<ExportDefiner> definers, List<String> headers, List<String> formats,
+                                      List<List<ExportAggregate>> aggregates) {
+        List<Node> nodes = new ArrayList<>();
+        add(nodes, definers, headers, formats, aggregates);
+        for (Node node : nodes) {
+            node.seal();
+        }
+        return nodes;
+    }
+
+    /**
+     * Method adds definers into tree, definers of the same nested object, e.g. "customer.name" and
+     * "customer.address.city", share node of that object, so its getter is invoked once per row
+     */
+    private static void add(List<Node> nodes, List<ExportDefiner> definers, List<String> headers, List<String> formats,
+                            List<List<ExportAggregate>> aggregates) {
+        if (definers == null) {
+            return;
+        }
+        for (ExportDefiner definer : definers) {
+            String[] path = definer.getName() == null ? new String[]{null} : definer.getName().split("\\.");
+            List<Node> level = nodes;
+            for (int i = 0; i < path.length - 1; i++) {
+                level = branch(level, path[i]).children;
+            }
+            String name = path[path.length - 1];
+            List<ExportDefiner> children = definer.getDefiners();
+            if ((children == null || children.isEmpty()) && definer.getHeader() != null) {
+                level.add(new Node(name, definer.getClasses(), definer.getParameters(), headers.size(), null));
+                headers.add(definer.getHeader());
+                formats.add(definer.getFormat());
+                aggregates.add(definer.getAggregates() == null || definer.getAggregates().isEmpty()
+                        ? null : Collections.unmodifiableList(new ArrayList<>(definer.getAggregates())));
+            } else if (definer.getClasses() == null && definer.getParameters() == null) {
+                add(branch(level, name).children, children, headers, formats, aggregates);
+            } else {
+                Node node = new Node(name, definer.getClasses(), definer.getParameters(), -1, new ArrayList<>());
+                level.add(node);
+                add(node.children, children, headers, formats, aggregates);
+            }
+        }
+    }
+
+    private static Node branch(List<Node> level, String name) {
+        for (Node node : level) {
+            if (node.children != null && node.classes == null && node.parameters == null
+                    && Objects.equals(node.name, name)) {
+                return node;
+            }
+        }
+        Node node = new Node(name, null, null, -1, new ArrayList<>());
+        level.add(node);
+        return node;
+    }
+
+    private void extract(Node node, Object entity, Object[] row) throws ReflectiveOperationException {
+        if (node.columns.length == 0) {
+            return;
+        }
+        if (entity == null) {
+            for (int column : node.columns) {
+                row[column] = null;
+            }
+            return;
+        }
+        Object value = node.get(entity);
+        if (node.children == null) {
+            row[node.column] = value;
+        } else {
+            for (Node child : node.children) {
+                extract(child, value, row);
+            }
+        }
+    }
+
+    private static MethodHandle resolve(Class<?> type, String name, Class<?>[] classes, boolean withParameters)
+            throws ReflectiveOperationException {
+        String key = withParameters ? name + Arrays.toString(classes) : name;
+        Map<String, MethodHandle> accessors = ACCESSORS.get(type);
+        MethodHandle accessor = accessors.get(key);
+        if (accessor == null) {
+            accessor = lookup(type, name, classes, withParameters);
+            accessors.put(key, accessor);
+        }
+        return accessor;
+    }
+
+    private static MethodHandle lookup(Class<?> type, String name, Class<?>[] classes, boolean withParameters)
+            throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                    return generic(lookup.unreflectGetter(field));
+                }
+            }
+        }
+        Class<?>[] parameterTypes = withParameters && classes != null ? classes : new Class<?>[0];
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                Method method = current.getDeclaredMethod(name, parameterTypes);
+                if (!Modifier.isStatic(method.getModifiers()) && method.trySetAccessible()) {
+                    return generic(lookup.unreflect(method));
+                }
+            } catch (NoSuchMethodException ignored) {
+                // method can be declared in superclass
+            }
+        }
+        try {
+            // default methods of interfaces
+            return generic(lookup.unreflect(type.getMethod(name, parameterTypes)));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ReflectiveOperationException("There is no such field or method! " + type.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle generic(MethodHandle handle) {
+        return handle.asType(handle.type().changeParameterType(0, Object.class).changeReturnType(Object.class));
+    }
+
+    private static final class Node {
+
+        private final String name;
+
+        private final Class<?>[] classes;
+
+        private final Object[] parameters;
+
+        /**
+         * Column of leaf, -1 for nested object
+         */
+        private final int column;
+
+        private final List<Node> children;
+
+        /**
+         * Columns of all leaves of node, they are cleared when node value is null
+         */
+        private int[] columns;
+
+        /**
+         * Accessor bound for last seen entity class, in most cases all entities have the same class
+         */
+        private volatile Binding binding;
+
+        private Node(String name, Class<?>[] classes, Object[] parameters, int column, List<Node> children) {
+            this.name = name;
+            this.classes = classes;
+            this.parameters = parameters;
+            this.column = column;
+            this.children = children;
+        }
+
+        private int[] seal() {
+            if (children == null) {
+                columns = new int[]{column};
+            } else {
+                columns = children.stream().map(Node::seal).flatMapToInt(Arrays::stream).toArray();
+            }
+            return columns;
+        }
+
+        private Object get(Object entity) throws ReflectiveOperationException {
+            Class<?> type = entity.getClass();
+            Binding current = binding;
+            if (current == null || current.type != type) {
+                current = new Binding(type, bind(type));
+                binding = current;
+            }
+            try {
+                return current.accessor.invokeExact(entity);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e, "Can't get " + name + " of " + type.getName());
+            }
+        }
+
+        private MethodHandle bind(Class<?> type) throws ReflectiveOperationException {
+            MethodHandle accessor = resolve(type, name, classes, parameters != null);
+            if (parameters != null && parameters.length > 0 && accessor.type().parameterCount() > 1) {
+                try {
+                    accessor = MethodHandles.insertArguments(accessor, 1, parameters);
+                } catch (ClassCastException | IllegalArgumentException e) {
+                    throw new ReflectiveOperationException("Wrong parameters for method " + type.getName() + "." + name, e);
+                }
+            }
+            if (!accessor.type().equals(GETTER_TYPE)) {
+                throw new ReflectiveOperationException("Wrong parameters for method " + type.getName() + "." + name);
+            }
+            return accessor;
+        }
+    }
+
+    private static final class Binding {
+
+        private final Class<?> type;
+
+        private final MethodHandle accessor;
+
+        private Binding(Class<?> type, MethodHandle accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+}
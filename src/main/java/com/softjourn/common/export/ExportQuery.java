@@ -0,0 +1,326 @@
+package com.softjourn.common.export;
+
+import com.softjourn.common.utils.ReflectionUtil;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * JPQL projection built from definers tree, so export selects only recorded properties
+ * instead of loading entities and their lazy associations one by one.
+ * Nested definers and dot paths become left joins of single-valued associations to entities, properties of embedded
+ * (non-entity) objects are reached by path, e.g. "j1.address.city". Every row is array of selected values
+ * that is written by {@link #getRowWriter()}.
+ * Definers should name persistent properties, directly or by getters (e.g. "getName"),
+ * definers of methods with parameters can't be selected.
+ * <pre>
+ * ExportQuery query = ExportQuery.of(Order.class, definers).where("e.status = :status", params);
+ * excelExport.export("orders", query.iterate(entityManager, 1000), query.getRowWriter(), options, out);
+ * </pre>
+ */
+public final class ExportQuery {
+
+    /**
+     * Alias of root entity in query
+     */
+    public static final String ROOT = "e";
+
+    /**
+     * Parameter of the last id of previous page
+     */
+    private static final String LAST_ID = "exportLastId";
+
+    private final Class<?> entityClass;
+
+    private final List<String> selections;
+
+    private final Map<String, String> joins;
+
+    private final RowWriter rowWriter;
+
+    private final String condition;
+
+    private final Map<String, ?> parameters;
+
+    private ExportQuery(Class<?> entityClass, List<String> selections, Map<String, String> joins, RowWriter rowWriter,
+                        String condition, Map<String, ?> parameters) {
+        this.entityClass = entityClass;
+        this.selections = selections;
+        this.joins = joins;
+        this.rowWriter = rowWriter;
+        this.condition = condition;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Method builds projection of definers
+     *
+     * @param entityClass - root entity
+     * @param definers    - defines data to be recorded
+     * @return ExportQuery
+     * @throws IllegalArgumentException if definer doesn't name property of entity
+     */
+    public static ExportQuery of(Class<?> entityClass, List<ExportDefiner> definers) {
+        List<String> selections = new ArrayList<>();
+        Map<String, String> joins = new LinkedHashMap<>();
+        List<String> headers = new ArrayList<>();
+        List<String> formats = new ArrayList<>();
+        List<List<ExportAggregate>> aggregates = new ArrayList<>();
+        add(entityClass, ROOT, definers, selections, joins, headers, formats, aggregates);
+        if (selections.isEmpty()) {
+            throw new IllegalArgumentException("There is nothing to select");
+        }
+        return new ExportQuery(entityClass, selections, joins, new RowWriter(headers, formats, aggregates), null,
+                Collections.emptyMap());
+    }
+
+    /**
+     * Method returns query with condition
+     *
+     * @param condition  - JPQL condition that uses {@link #ROOT} alias, e.g. "e.status = :status"
+     * @param parameters - named parameters of condition
+     * @return ExportQuery
+     */
+    public ExportQuery where(String condition, Map<String, ?> parameters) {
+        return new ExportQuery(entityClass, selections, joins, rowWriter, condition, parameters);
+    }
+
+    /**
+     * @return JPQL select statement without ordering
+     */
+    public String getJpql() {
+        return select(String.join(", ", selections)) + where(null);
+    }
+
+    /**
+     * @return writer of selected rows with headers and formats of definers
+     */
+    public ExportRowWriter<Object[]> getRowWriter() {
+        return rowWriter;
+    }
+
+    /**
+     * Method iterates over selected rows page by page ordered by id of entity,
+     * next page is fetched when previous one is consumed.
+     * Pages are selected by keyset, i.e. rows with id greater than the last id of previous page,
+     * so database doesn't skip previous rows for every page. Id is selected as additional last column of row
+     *
+     * @param entityManager - entity manager
+     * @param pageSize      - number of rows in page, positive
+     * @return iterator over rows
+     * @throws IllegalArgumentException if entity doesn't have id field or page size is not positive
+     */
+    public Iterator<Object[]> iterate(EntityManager entityManager, int pageSize) {
+        if (pageSize <= 0) {
+            // last page is detected by its size, so empty pages would be fetched forever
+            throw new IllegalArgumentException("Page size should be positive: " + pageSize);
+        }
+        String id = ROOT + "." + ReflectionUtil.getIdFieldName(entityClass);
+        String select = select(String.join(", ", selections) + ", " + id);
+        String firstPage = select + where(null) + " ORDER BY " + id;
+        String nextPage = select + where(id + " > :" + LAST_ID) + " ORDER BY " + id;
+        return new Iterator<Object[]>() {
+
+            private Object lastId;
+
+            private boolean last;
+
+            private Iterator<?> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !last) {
+                    Query query = entityManager.createQuery(lastId == null ? firstPage : nextPage);
+                    parameters.forEach(query::setParameter);
+                    if (lastId != null) {
+                        query.setParameter(LAST_ID, lastId);
+                    }
+                    List<?> rows = query.setMaxResults(pageSize).getResultList();
+                    last = rows.size() < pageSize;
+                    if (!rows.isEmpty()) {
+                        Object[] lastRow = (Object[]) rows.get(rows.size() - 1);
+                        lastId = lastRow[lastRow.length - 1];
+                    }
+                    page = rows.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                // row writer copies only selected columns, id is left out
+                return (Object[]) page.next();
+            }
+        };
+    }
+
+    private String select(String columns) {
+        StringBuilder jpql = new StringBuilder("SELECT ").append(columns)
+                .append(" FROM ").append(entityName(entityClass)).append(' ').append(ROOT);
+        for (Map.Entry<String, String> join : joins.entrySet()) {
+            jpql.append(" LEFT JOIN ").append(join.getKey()).append(' ').append(join.getValue());
+        }
+        return jpql.toString();
+    }
+
+    /**
+     * Method combines condition of query with additional one
+     */
+    private String where(String additional) {
+        if (condition == null) {
+            return additional == null ? "" : " WHERE " + additional;
+        }
+        return additional == null ? " WHERE " + condition : " WHERE (" + condition + ") AND " + additional;
+    }
+
+    private static void add(Class<?> type, String alias, List<ExportDefiner> definers,
+                            List<String> selections, Map<String, String> joins,
+                            List<String> headers, List<String> formats, List<List<ExportAggregate>> aggregates) {
+        if (definers == null) {
+            return;
+        }
+        for (ExportDefiner definer : definers) {
+            if (!selectsAnything(definer)) {
+                // definer doesn't record any column, so association isn't joined for it
+                continue;
+            }
+            if (definer.getParameters() != null && definer.getParameters().length > 0) {
+                throw new IllegalArgumentException("Method " + definer.getName() + " with parameters can't be selected");
+            }
+            String[] names = definer.getName().split("\\.");
+            Class<?> current = type;
+            String currentAlias = alias;
+            for (int i = 0; i < names.length - 1; i++) {
+                String property = propertyName(names[i]);
+                current = propertyType(current, property);
+                currentAlias = path(joins, currentAlias + "." + property, current);
+            }
+            String property = propertyName(names[names.length - 1]);
+            Class<?> propertyType = propertyType(current, property);
+            List<ExportDefiner> children = definer.getDefiners();
+            if ((children == null || children.isEmpty()) && definer.getHeader() != null) {
+                selections.add(currentAlias + "." + property);
+                headers.add(definer.getHeader());
+                formats.add(definer.getFormat());
+                aggregates.add(definer.getAggregates() == null || definer.getAggregates().isEmpty()
+                        ? null : Collections.unmodifiableList(new ArrayList<>(definer.getAggregates())));
+            } else {
+                add(propertyType, path(joins, currentAlias + "." + property, propertyType), children, selections, joins,
+                        headers, formats, aggregates);
+            }
+        }
+    }
+
+    /**
+     * @return true if definer or any of its nested definers records a column
+     */
+    private static boolean selectsAnything(ExportDefiner definer) {
+        List<ExportDefiner> children = definer.getDefiners();
+        if (children == null || children.isEmpty()) {
+            return definer.getHeader() != null;
+        }
+        for (ExportDefiner child : children) {
+            if (selectsAnything(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method returns alias of joined association to entity, association is joined once for all its properties.
+     * Embedded objects can't be joined, so path to them is used as is
+     */
+    private static String path(Map<String, String> joins, String path, Class<?> type) {
+        if (!type.isAnnotationPresent(Entity.class)) {
+            return path;
+        }
+        return joins.computeIfAbsent(path, key -> "j" + (joins.size() + 1));
+    }
+
+    private static String propertyName(String name) {
+        for (String prefix : new String[]{"get", "is"}) {
+            if (name.length() > prefix.length() && name.startsWith(prefix)
+                    && Character.isUpperCase(name.charAt(prefix.length()))) {
+                return Character.toLowerCase(name.charAt(prefix.length())) + name.substring(prefix.length() + 1);
+            }
+        }
+        return name;
+    }
+
+    private static Class<?> propertyType(Class<?> type, String property) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(property)) {
+                    return field.getType();
+                }
+            }
+        }
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String name : new String[]{"get" + suffix, "is" + suffix}) {
+            try {
+                Method getter = type.getMethod(name);
+                return getter.getReturnType();
+            } catch (NoSuchMethodException ignored) {
+                // property can be boolean
+            }
+        }
+        throw new IllegalArgumentException(property + " is not a property of " + type.getName());
+    }
+
+    private static String entityName(Class<?> entityClass) {
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        return entity != null && !entity.name().isEmpty() ? entity.name() : entityClass.getSimpleName();
+    }
+
+    /**
+     * Selected values are already in order of columns
+     */
+    private static final class RowWriter implements ExportRowWriter<Object[]> {
+
+        private final List<String> headers;
+
+        private final List<String> formats;
+
+        private final List<List<ExportAggregate>> aggregates;
+
+        private RowWriter(List<String> headers, List<String> formats, List<List<ExportAggregate>> aggregates) {
+            this.headers = Collections.unmodifiableList(headers);
+            this.formats = Collections.unmodifiableList(formats);
+            this.aggregates = Collections.unmodifiableList(aggregates);
+        }
+
+        @Override
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public List<String> getFormats() {
+            return formats;
+        }
+
+        @Override
+        public List<List<ExportAggregate>> getAggregates() {
+            return aggregates;
+        }
+
+        @Override
+        public void extract(Object[] entity, Object[] row) {
+            System.arraycopy(entity, 0, row, 0, Math.min(entity.length, row.length));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.softjourn.common.export;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fills rows of report with values of entities.
+ * It is implemented by {@link ExportPlan} that reads values of definers by reflection and by writers
+ * generated for classes annotated with {@link ExportColumn} that call getters directly, see {@link ExportRowWriters}
+ *
+ * @param <T> - type of entities
+ */
+public interface ExportRowWriter<T> {
+
+    /**
+     * @return headers of columns in order they will be written
+     */
+    List<String> getHeaders();
+
+    /**
+     * @return data formats of columns, null for columns without format
+     */
+    List<String> getFormats();
+
+    /**
+     * @return aggregates of columns written into summary rows, null for columns without aggregates
+     */
+    default List<List<ExportAggregate>> getAggregates() {
+        return Collections.nCopies(getColumnCount(), null);
+    }
+
+    /**
+     * @return number of columns in row
+     */
+    default int getColumnCount() {
+        return getHeaders().size();
+    }
+
+    /**
+     * Method fills row with values of entity, values of nested objects that are null are left null
+     *
+     * @param entity - data
+     * @param row    - array to fill, should have at least {@link #getColumnCount()} length
+     * @throws ReflectiveOperationException if value can't be read
+     */
+    void extract(T entity, Object[] row) throws ReflectiveOperationException;
+}
@@ -0,0 +1,59 @@
+package com.softjourn.common.export;
+
+/**
+ * Finds row writers generated at compile time for classes with {@link ExportColumn} members.
+ * Writer of class "com.example.Outer.Payment" is "com.example.Outer_PaymentExportRowWriter".
+ */
+public final class ExportRowWriters {
+
+    public static final String SUFFIX = "ExportRowWriter";
+
+    private static final ClassValue<ExportRowWriter<?>> WRITERS = new ClassValue<ExportRowWriter<?>>() {
+        @Override
+        protected ExportRowWriter<?> computeValue(Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private ExportRowWriters() {
+    }
+
+    /**
+     * Method returns generated writer of class, writer is created once
+     *
+     * @param type - class with {@link ExportColumn} members
+     * @param <T>  - type of entities
+     * @return ExportRowWriter
+     * @throws IllegalArgumentException if there is no generated writer of class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ExportRowWriter<T> of(Class<T> type) {
+        return (ExportRowWriter<T>) WRITERS.get(type);
+    }
+
+    /**
+     * Method builds name of generated writer
+     *
+     * @param packageName - package of class, empty for default package
+     * @param simpleNames - simple names of class and its enclosing classes joined with '.' or '$'
+     * @return String - qualified name of writer
+     */
+    public static String writerName(String packageName, String simpleNames) {
+        String name = simpleNames.replace('.', '_').replace('$', '_') + SUFFIX;
+        return packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    private static ExportRowWriter<?> load(Class<?> type) {
+        String packageName = type.getPackageName();
+        String name = writerName(packageName, type.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1));
+        try {
+            Class<?> writer = Class.forName(name, true, type.getClassLoader());
+            return (ExportRowWriter<?>) writer.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("There is no generated row writer for " + type.getName()
+                    + ", class should have @ExportColumn members and be compiled with annotation processing enabled", e);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Can't create row writer " + name, e);
+        }
+    }
+}
@@ -2,10 +2,28 @@ package com.softjourn.common.export;
 
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
-public interface ExportService {
+public interface ExportService extends StreamingExportService {
 
     <T> Workbook export(String name, List<T> entities, List<ExportDefiner> definers) throws NoSuchFieldException, IllegalAccessException;
 
+    /**
+     * Method writes workbook of entities into output stream, stream is not closed by this method
+     *
+     * @param name     - report name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    @Override
+    default <T> void export(String name, List<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        try (Workbook workbook = export(name, entities, definers)) {
+            workbook.write(out);
+        }
+    }
+
 }
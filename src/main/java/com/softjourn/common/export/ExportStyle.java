@@ -0,0 +1,37 @@
+package com.softjourn.common.export;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Definition of cell style, equal definitions share one CellStyle within workbook
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class ExportStyle {
+
+    public static final ExportStyle DEFAULT = ExportStyle.builder().build();
+
+    @Builder.Default
+    private final String fontName = "Calibri";
+
+    @Builder.Default
+    private final short fontHeight = 14;
+
+    private final boolean bold;
+
+    /**
+     * Excel data format, e.g. "#,##0.00" or "yyyy-mm-dd", null for general format
+     */
+    private final String dataFormat;
+
+    /**
+     * @param dataFormat - excel data format
+     * @return copy of this style with another data format
+     */
+    public ExportStyle withDataFormat(String dataFormat) {
+        return toBuilder().dataFormat(dataFormat).build();
+    }
+}
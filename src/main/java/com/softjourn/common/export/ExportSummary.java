@@ -0,0 +1,334 @@
+package com.softjourn.common.export;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Aggregates of columns accumulated while rows are written, so summary rows don't need second pass over entities.
+ * Every column is accumulated by kind of its values: integral values are summed exactly while sum fits into long,
+ * {@link BigDecimal} values (and integral sums that overflow long) are summed exactly as decimals,
+ * floating values are summed as doubles with compensation, which is the precision spreadsheet calculates formulas with.
+ * Min and max keep the kind of values, so integral ones stay longs and decimal ones stay decimals.
+ * Values that are not numbers are ignored. Summary is not thread safe, every writer accumulates its own one
+ * and summaries of partitions are merged.
+ */
+final class ExportSummary {
+
+    /**
+     * Precision of average of decimals, the one of double that spreadsheet shows
+     */
+    private static final MathContext AVERAGE_PRECISION = MathContext.DECIMAL64;
+
+    private final ExportAggregate[][] aggregates;
+
+    /**
+     * Aggregates of all columns in order summary rows are written
+     */
+    private final List<ExportAggregate> rows;
+
+    /**
+     * Columns that have aggregates
+     */
+    private final int[] columns;
+
+    private final long[] counts;
+
+    private final long[] longCounts;
+
+    private final long[] longSums;
+
+    private final long[] longMins;
+
+    private final long[] longMaxs;
+
+    /**
+     * Exact sums of decimals, null until column has decimal values or its integral sum overflows long
+     */
+    private final BigDecimal[] decimalSums;
+
+    private final BigDecimal[] decimalMins;
+
+    private final BigDecimal[] decimalMaxs;
+
+    private final long[] doubleCounts;
+
+    private final double[] doubleSums;
+
+    private final double[] compensations;
+
+    private final double[] doubleMins;
+
+    private final double[] doubleMaxs;
+
+    private ExportSummary(ExportAggregate[][] aggregates, List<ExportAggregate> rows, int[] columns) {
+        int count = aggregates.length;
+        this.aggregates = aggregates;
+        this.rows = rows;
+        this.columns = columns;
+        this.counts = new long[count];
+        this.longCounts = new long[count];
+        this.longSums = new long[count];
+        this.longMins = new long[count];
+        this.longMaxs = new long[count];
+        this.decimalSums = new BigDecimal[count];
+        this.decimalMins = new BigDecimal[count];
+        this.decimalMaxs = new BigDecimal[count];
+        this.doubleCounts = new long[count];
+        this.doubleSums = new double[count];
+        this.compensations = new double[count];
+        this.doubleMins = new double[count];
+        this.doubleMaxs = new double[count];
+        Arrays.fill(longMins, Long.MAX_VALUE);
+        Arrays.fill(longMaxs, Long.MIN_VALUE);
+        Arrays.fill(doubleMins, Double.POSITIVE_INFINITY);
+        Arrays.fill(doubleMaxs, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Method creates empty summary of columns of row writer
+     *
+     * @param rows - row writer
+     * @return ExportSummary or null if no column has aggregates
+     */
+    static ExportSummary of(ExportRowWriter<?> rows) {
+        List<List<ExportAggregate>> declared = rows.getAggregates();
+        ExportAggregate[][] aggregates = new ExportAggregate[rows.getColumnCount()][];
+        Set<ExportAggregate> all = EnumSet.noneOf(ExportAggregate.class);
+        List<Integer> columns = new ArrayList<>();
+        for (int i = 0; i < aggregates.length && i < declared.size(); i++) {
+            List<ExportAggregate> column = declared.get(i);
+            if (column != null && !column.isEmpty()) {
+                aggregates[i] = EnumSet.copyOf(column).toArray(new ExportAggregate[0]);
+                all.addAll(column);
+                columns.add(i);
+            }
+        }
+        if (columns.isEmpty()) {
+            return null;
+        }
+        return new ExportSummary(aggregates, Collections.unmodifiableList(new ArrayList<>(all)),
+                columns.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return new empty summary of the same columns
+     */
+    ExportSummary copy() {
+        return new ExportSummary(aggregates, rows, columns);
+    }
+
+    /**
+     * Method accumulates values of row
+     *
+     * @param values - values of row
+     */
+    void add(Object[] values) {
+        for (int column : columns) {
+            Object value = values[column];
+            if (!(value instanceof Number)) {
+                continue;
+            }
+            counts[column]++;
+            if (isIntegral(value)) {
+                long number = ((Number) value).longValue();
+                longCounts[column]++;
+                addLong(column, number);
+                longMins[column] = Math.min(longMins[column], number);
+                longMaxs[column] = Math.max(longMaxs[column], number);
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                BigDecimal number = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal((BigInteger) value);
+                addDecimal(column, number);
+                decimalMins[column] = decimalMins[column] == null ? number : decimalMins[column].min(number);
+                decimalMaxs[column] = decimalMaxs[column] == null ? number : decimalMaxs[column].max(number);
+            } else {
+                double number = ((Number) value).doubleValue();
+                doubleCounts[column]++;
+                addDouble(column, number);
+                doubleMins[column] = Math.min(doubleMins[column], number);
+                doubleMaxs[column] = Math.max(doubleMaxs[column], number);
+            }
+        }
+    }
+
+    /**
+     * Method adds values accumulated by other summary of the same columns
+     *
+     * @param other - summary
+     */
+    void merge(ExportSummary other) {
+        for (int column : columns) {
+            counts[column] += other.counts[column];
+            longCounts[column] += other.longCounts[column];
+            addLong(column, other.longSums[column]);
+            longMins[column] = Math.min(longMins[column], other.longMins[column]);
+            longMaxs[column] = Math.max(longMaxs[column], other.longMaxs[column]);
+            if (other.decimalSums[column] != null) {
+                addDecimal(column, other.decimalSums[column]);
+            }
+            if (other.decimalMins[column] != null) {
+                decimalMins[column] = decimalMins[column] == null
+                        ? other.decimalMins[column] : decimalMins[column].min(other.decimalMins[column]);
+                decimalMaxs[column] = decimalMaxs[column] == null
+                        ? other.decimalMaxs[column] : decimalMaxs[column].max(other.decimalMaxs[column]);
+            }
+            doubleCounts[column] += other.doubleCounts[column];
+            addDouble(column, other.doubleSums[column]);
+            addDouble(column, -other.compensations[column]);
+            doubleMins[column] = Math.min(doubleMins[column], other.doubleMins[column]);
+            doubleMaxs[column] = Math.max(doubleMaxs[column], other.doubleMaxs[column]);
+        }
+    }
+
+    /**
+     * @return aggregates in order summary rows are written, one row per aggregate
+     */
+    List<ExportAggregate> getRows() {
+        return rows;
+    }
+
+    /**
+     * @param column    - column
+     * @param aggregate - aggregate
+     * @return true if column has aggregate
+     */
+    boolean has(int column, ExportAggregate aggregate) {
+        if (aggregates[column] == null) {
+            return false;
+        }
+        for (ExportAggregate declared : aggregates[column]) {
+            if (declared == aggregate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method returns value of aggregate of column. Sum, min and max of integral values are longs,
+     * of decimal values (without floating ones) are exact decimals and of floating values are doubles
+     *
+     * @param column    - column
+     * @param aggregate - aggregate
+     * @return Number or null if column doesn't have numeric values and aggregate is undefined
+     */
+    Number getValue(int column, ExportAggregate aggregate) {
+        long count = counts[column];
+        if (aggregate == ExportAggregate.COUNT) {
+            return count;
+        }
+        if (count == 0 && aggregate != ExportAggregate.SUM) {
+            return null;
+        }
+        if (doubleCounts[column] > 0) {
+            switch (aggregate) {
+                case SUM:
+                    return doubleSum(column);
+                case AVERAGE:
+                    return doubleSum(column) / count;
+                case MIN:
+                    return Math.min(doubleMins[column], min(column).doubleValue());
+                default:
+                    return Math.max(doubleMaxs[column], max(column).doubleValue());
+            }
+        }
+        switch (aggregate) {
+            case SUM:
+                return decimalSums[column] == null ? (Number) longSums[column] : decimalSum(column);
+            case AVERAGE:
+                if (decimalSums[column] == null) {
+                    // average of integral values is fractional
+                    return (double) longSums[column] / count;
+                }
+                return decimalSum(column).divide(BigDecimal.valueOf(count), AVERAGE_PRECISION);
+            case MIN:
+                return min(column);
+            default:
+                return max(column);
+        }
+    }
+
+    /**
+     * Method returns summary row with values of aggregate and its label in first column
+     *
+     * @param aggregate - aggregate
+     * @return Object[] - values of row, null for columns without aggregate
+     */
+    Object[] toRow(ExportAggregate aggregate) {
+        Object[] row = new Object[aggregates.length];
+        for (int column : columns) {
+            if (has(column, aggregate)) {
+                row[column] = getValue(column, aggregate);
+            }
+        }
+        if (row.length > 0 && !has(0, aggregate)) {
+            row[0] = aggregate.getLabel();
+        }
+        return row;
+    }
+
+    private void addLong(int column, long number) {
+        try {
+            longSums[column] = Math.addExact(longSums[column], number);
+        } catch (ArithmeticException e) {
+            // sum doesn't fit into long any longer, it is continued as decimal
+            addDecimal(column, BigDecimal.valueOf(number));
+        }
+    }
+
+    private void addDecimal(int column, BigDecimal number) {
+        decimalSums[column] = decimalSums[column] == null ? number : decimalSums[column].add(number);
+    }
+
+    /**
+     * Method adds number to sum of doubles with Kahan compensation of lost low order bits
+     */
+    private void addDouble(int column, double number) {
+        double corrected = number - compensations[column];
+        double sum = doubleSums[column] + corrected;
+        compensations[column] = (sum - doubleSums[column]) - corrected;
+        doubleSums[column] = sum;
+    }
+
+    private BigDecimal decimalSum(int column) {
+        return decimalSums[column].add(BigDecimal.valueOf(longSums[column]));
+    }
+
+    private double doubleSum(int column) {
+        double sum = doubleSums[column] + longSums[column];
+        return decimalSums[column] == null ? sum : sum + decimalSums[column].doubleValue();
+    }
+
+    /**
+     * @return min of integral and decimal values of column, it is a long if column doesn't have decimals
+     */
+    private Number min(int column) {
+        if (decimalMins[column] == null) {
+            return longCounts[column] == 0 ? (Number) Double.POSITIVE_INFINITY : (Number) longMins[column];
+        }
+        return longCounts[column] == 0
+                ? decimalMins[column] : decimalMins[column].min(BigDecimal.valueOf(longMins[column]));
+    }
+
+    /**
+     * @return max of integral and decimal values of column, it is a long if column doesn't have decimals
+     */
+    private Number max(int column) {
+        if (decimalMaxs[column] == null) {
+            return longCounts[column] == 0 ? (Number) Double.NEGATIVE_INFINITY : (Number) longMaxs[column];
+        }
+        return longCounts[column] == 0
+                ? decimalMaxs[column] : decimalMaxs[column].max(BigDecimal.valueOf(longMaxs[column]));
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE;
+    }
+}
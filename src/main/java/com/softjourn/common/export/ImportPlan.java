@@ -0,0 +1,421 @@
+package com.softjourn.common.export;
+
+import com.softjourn.common.utils.ReflectionUtil;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Inverse of {@link ExportPlan}: definers tree compiled into setters of entity class.
+ * Leaf definer is written into field with the same name or into setter of property,
+ * definers of getters (e.g. "getName" or "isActive") are written into setters of their properties.
+ * Nested objects, declared by nested definers or by dot paths like "customer.address.city",
+ * are created by their no-argument constructors when they are null.
+ * Columns that can't be written, e.g. values computed by methods with parameters, are skipped.
+ * If definers declare aggregates, the report ends with one summary row per aggregate, see {@link #getSummaryRows()}.
+ */
+final class ImportPlan<T> {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle constructor;
+
+    private final List<Leaf> leaves;
+
+    private final int summaryRows;
+
+    private ImportPlan(MethodHandle constructor, List<Leaf> leaves, int summaryRows) {
+        this.constructor = constructor;
+        this.leaves = leaves;
+        this.summaryRows = summaryRows;
+    }
+
+    /**
+     * Method compiles definers into setters of entity class
+     *
+     * @param type     - entity class, should have no-argument constructor
+     * @param definers - defines data that was recorded
+     * @return ImportPlan
+     * @throws ReflectiveOperationException if entity class doesn't have no-argument constructor
+     */
+    static <T> ImportPlan<T> compile(Class<T> type, List<ExportDefiner> definers) throws ReflectiveOperationException {
+        List<Leaf> leaves = new ArrayList<>();
+        compile(type, definers, new ArrayList<>(), leaves);
+        Set<ExportAggregate> aggregates = EnumSet.noneOf(ExportAggregate.class);
+        collectAggregates(definers, aggregates);
+        return new ImportPlan<>(constructor(type), leaves, aggregates.size());
+    }
+
+    /**
+     * @return number of summary rows written after last data row of report, one row per distinct aggregate
+     * of columns as in {@link ExportSummary}
+     */
+    int getSummaryRows() {
+        return summaryRows;
+    }
+
+    /**
+     * Method matches header row with headers of definers, headers that repeat are matched in order
+     *
+     * @param cells - values of row
+     * @return leaf to be written for every column or null if row doesn't contain any header
+     */
+    Leaf[] bind(List<Object> cells) {
+        Leaf[] columns = new Leaf[cells.size()];
+        boolean[] used = new boolean[leaves.size()];
+        boolean matched = false;
+        for (int column = 0; column < cells.size(); column++) {
+            Object cell = cells.get(column);
+            if (!(cell instanceof String)) {
+                continue;
+            }
+            for (int i = 0; i < leaves.size(); i++) {
+                if (!used[i] && cell.equals(leaves.get(i).header)) {
+                    used[i] = true;
+                    columns[column] = leaves.get(i);
+                    matched |= leaves.get(i).setter != null;
+                    break;
+                }
+            }
+        }
+        return matched ? columns : null;
+    }
+
+    /**
+     * Method creates entity from row
+     *
+     * @param columns - leaves bound to columns by {@link #bind(List)}
+     * @param cells   - values of row
+     * @return entity
+     * @throws IllegalArgumentException if value can't be converted into type of property
+     */
+    @SuppressWarnings("unchecked")
+    T read(Leaf[] columns, List<Object> cells) throws ReflectiveOperationException {
+        T entity;
+        try {
+            entity = (T) constructor.invoke();
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e, "Can't create entity");
+        }
+        for (int column = 0; column < columns.length && column < cells.size(); column++) {
+            Leaf leaf = columns[column];
+            if (leaf != null && leaf.setter != null) {
+                leaf.write(entity, cells.get(column));
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Method converts value of cell into type of property using the same rules as
+     * {@link ReflectionUtil#tryToCastValue(Class, Object)}. Numbers are read as doubles,
+     * so whole numbers are passed as longs and dates are converted from local date time of cell
+     *
+     * @param type  - type of property
+     * @param value - value of cell
+     * @return converted value, null for empty cells
+     */
+    static Object convert(Class<?> type, Object value) {
+        if (value == null || "".equals(value)) {
+            return null;
+        }
+        Class<?> target = ClassUtils.resolvePrimitiveIfNecessary(type);
+        if (target.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            if (target == LocalDate.class) {
+                return dateTime.toLocalDate();
+            }
+            if (target == Instant.class) {
+                // instants are exported in UTC
+                return dateTime.toInstant(ZoneOffset.UTC);
+            }
+            if (target == Date.class) {
+                return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+            }
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (target == BigDecimal.class) {
+                return BigDecimal.valueOf(number);
+            }
+            if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE) {
+                value = (long) number;
+            }
+        }
+        return ReflectionUtil.tryToCastValue(target, value);
+    }
+
+    private static void compile(Class<?> type, List<ExportDefiner> definers, List<Step> path, List<Leaf> leaves) {
+        if (definers == null) {
+            return;
+        }
+        for (ExportDefiner definer : definers) {
+            List<ExportDefiner> children = definer.getDefiners();
+            List<Step> steps = new ArrayList<>(path);
+            Property property = definer.getParameters() != null && definer.getParameters().length > 0
+                    ? null : resolve(type, definer.getName(), steps);
+            if ((children == null || children.isEmpty()) && definer.getHeader() != null) {
+                leaves.add(new Leaf(definer.getHeader(), steps, property));
+            } else if (property != null && property.getter != null && property.setter != null) {
+                steps.add(new Step(property));
+                compile(property.type, children, steps, leaves);
+            } else {
+                // nested object can't be set, its headers are still matched so columns are skipped
+                collectHeaders(children, leaves);
+            }
+        }
+    }
+
+    /**
+     * Method resolves property by name or by dot path, steps to nested object of path are added into steps
+     *
+     * @return property or null if it can't be resolved
+     */
+    private static Property resolve(Class<?> type, String name, List<Step> steps) {
+        if (name == null) {
+            return null;
+        }
+        String[] path = name.split("\\.");
+        Class<?> current = type;
+        for (int i = 0; i < path.length - 1; i++) {
+            Property nested = Property.resolve(current, path[i]);
+            if (nested == null || nested.getter == null || nested.setter == null) {
+                return null;
+            }
+            steps.add(new Step(nested));
+            current = nested.type;
+        }
+        return Property.resolve(current, path[path.length - 1]);
+    }
+
+    private static void collectHeaders(List<ExportDefiner> definers, List<Leaf> leaves) {
+        if (definers == null) {
+            return;
+        }
+        for (ExportDefiner definer : definers) {
+            List<ExportDefiner> children = definer.getDefiners();
+            if ((children == null || children.isEmpty()) && definer.getHeader() != null) {
+                leaves.add(new Leaf(definer.getHeader(), new ArrayList<>(), null));
+            } else {
+                collectHeaders(children, leaves);
+            }
+        }
+    }
+
+    private static void collectAggregates(List<ExportDefiner> definers, Set<ExportAggregate> aggregates) {
+        if (definers == null) {
+            return;
+        }
+        for (ExportDefiner definer : definers) {
+            List<ExportDefiner> children = definer.getDefiners();
+            if ((children == null || children.isEmpty()) && definer.getHeader() != null) {
+                if (definer.getAggregates() != null) {
+                    aggregates.addAll(definer.getAggregates());
+                }
+            } else {
+                collectAggregates(children, aggregates);
+            }
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type) throws ReflectiveOperationException {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        if (!constructor.trySetAccessible()) {
+            throw new IllegalAccessException("Constructor of " + type.getName() + " is not accessible");
+        }
+        MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+        return handle.asType(handle.type().changeReturnType(Object.class));
+    }
+
+    /**
+     * Leaf column with path of nested objects it is written into
+     */
+    static final class Leaf {
+
+        private final String header;
+
+        private final Step[] path;
+
+        private final MethodHandle setter;
+
+        private final Class<?> type;
+
+        private Leaf(String header, List<Step> path, Property property) {
+            this.header = header;
+            this.path = path.toArray(new Step[0]);
+            this.setter = property == null ? null : property.setter;
+            this.type = property == null ? null : property.type;
+        }
+
+        private void write(Object entity, Object cell) throws ReflectiveOperationException {
+            Object value = convert(type, cell);
+            if (value == null && type.isPrimitive()) {
+                return;
+            }
+            Object target = entity;
+            try {
+                for (Step step : path) {
+                    target = step.get(target);
+                }
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | ReflectiveOperationException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e, "Can't set value of column " + header);
+            }
+        }
+    }
+
+    /**
+     * Nested object on path to leaf, created when it is null
+     */
+    private static final class Step {
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private final MethodHandle constructor;
+
+        private Step(Property property) {
+            this.getter = property.getter;
+            this.setter = property.setter;
+            MethodHandle handle;
+            try {
+                handle = constructor(property.type);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                handle = null;
+            }
+            this.constructor = handle;
+        }
+
+        private Object get(Object target) throws Throwable {
+            Object value = (Object) getter.invokeExact(target);
+            if (value == null) {
+                if (constructor == null) {
+                    throw new InstantiationException("Nested object can't be created");
+                }
+                value = (Object) constructor.invokeExact();
+                setter.invokeExact(target, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Property resolved by field or accessor methods
+     */
+    private static final class Property {
+
+        private final Class<?> type;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private Property(Class<?> type, MethodHandle getter, MethodHandle setter) {
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private static Property resolve(Class<?> type, String name) {
+            Field field = field(type, name);
+            if (field == null) {
+                String property = propertyName(name);
+                if (property != null) {
+                    field = field(type, property);
+                    name = property;
+                }
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                if (field != null && !Modifier.isFinal(field.getModifiers()) && field.trySetAccessible()) {
+                    return new Property(field.getType(), lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                            lookup.unreflectSetter(field).asType(SETTER_TYPE));
+                }
+                Method setter = setter(type, name);
+                if (setter == null) {
+                    return null;
+                }
+                Class<?> propertyType = setter.getParameterTypes()[0];
+                Method getter = getter(type, name);
+                return new Property(propertyType,
+                        getter == null ? null : lookup.unreflect(getter).asType(GETTER_TYPE),
+                        lookup.unreflect(setter).asType(SETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private static Field field(Class<?> type, String name) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                        return field;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static Method setter(Class<?> type, String property) {
+            String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            for (Method method : type.getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == 1
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            }
+            return null;
+        }
+
+        private static Method getter(Class<?> type, String property) {
+            String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            for (String name : new String[]{"get" + suffix, "is" + suffix}) {
+                try {
+                    return type.getMethod(name);
+                } catch (NoSuchMethodException ignored) {
+                    // property can be boolean
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return name of property for getter name, e.g. "name" for "getName", null for other names
+         */
+        private static String propertyName(String method) {
+            for (String prefix : new String[]{"get", "is"}) {
+                if (method.length() > prefix.length() && method.startsWith(prefix)
+                        && Character.isUpperCase(method.charAt(prefix.length()))) {
+                    return Character.toLowerCase(method.charAt(prefix.length())) + method.substring(prefix.length() + 1);
+                }
+            }
+            return null;
+        }
+    }
+}
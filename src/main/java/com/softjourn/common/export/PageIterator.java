@@ -0,0 +1,64 @@
+package com.softjourn.common.export;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterator over entities of repository pages, next page is fetched only when previous one is consumed,
+ * so only one page is kept in memory at a time
+ *
+ * @param <T> - entity
+ */
+public class PageIterator<T> implements Iterator<T> {
+
+    private final Function<Pageable, ? extends Slice<T>> fetcher;
+
+    private Pageable next;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /**
+     * @param fetcher - function to fetch page, e.g. repository::findAll
+     * @param first   - first page to fetch
+     */
+    public PageIterator(Function<Pageable, ? extends Slice<T>> fetcher, Pageable first) {
+        this.fetcher = fetcher;
+        this.next = first;
+    }
+
+    /**
+     * Method creates iterator that starts from first page
+     *
+     * @param fetcher  - function to fetch page, e.g. repository::findAll
+     * @param pageSize - number of entities on page
+     * @param <T>      - entity
+     * @return PageIterator
+     */
+    public static <T> PageIterator<T> of(Function<Pageable, ? extends Slice<T>> fetcher, int pageSize) {
+        return new PageIterator<>(fetcher, PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && next != null) {
+            Slice<T> slice = fetcher.apply(next);
+            current = slice.getContent().iterator();
+            next = slice.hasNext() ? slice.nextPageable() : null;
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+}
@@ -0,0 +1,145 @@
+package com.softjourn.common.export;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Pipeline that extracts and converts values of entity chunks on executor threads
+ * while single writer appends finished rows to sheet in original order.
+ * Number of chunks in flight is bounded, so memory doesn't depend on number of entities.
+ * Partitions of entities that are written into different sheets can be also filled concurrently
+ * if workbook allows writing into different sheets from different threads.
+ */
+final class ParallelRowRenderer {
+
+    private ParallelRowRenderer() {
+    }
+
+    /**
+     * Method renders entities in parallel and writes them into sheet
+     *
+     * @param rows     - row writer
+     * @param entities - entities, iterator is used only by calling thread
+     * @param writer   - sheet writer
+     * @param options  - export options with executor
+     * @param <T>      - any entity
+     * @throws ReflectiveOperationException if values can't be extracted
+     */
+    static <T> void render(ExportRowWriter<? super T> rows, Iterator<T> entities, SheetWriter writer, ExportOptions options)
+            throws ReflectiveOperationException {
+        Executor executor = options.getExecutor();
+        int chunkSize = options.getChunkSize();
+        int maxChunksInFlight = options.getMaxChunksInFlight();
+        if (chunkSize <= 0 || maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("Chunk size and chunks in flight should be positive");
+        }
+        Deque<CompletableFuture<Object[][]>> pending = new ArrayDeque<>();
+        try {
+            while (entities.hasNext() || !pending.isEmpty()) {
+                while (entities.hasNext() && pending.size() < maxChunksInFlight) {
+                    List<T> chunk = nextChunk(entities, chunkSize);
+                    pending.add(CompletableFuture.supplyAsync(() -> render(rows, chunk), executor));
+                }
+                for (Object[] values : await(pending.poll())) {
+                    writer.write(values);
+                }
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Method fills every partition into its own sheet concurrently
+     *
+     * @param rows       - row writer
+     * @param partitions - entities of every sheet
+     * @param writers    - writer of every sheet
+     * @param executor   - executor
+     * @param <T>        - any entity
+     * @return int - row number of last written row on last sheet
+     * @throws ReflectiveOperationException if values can't be extracted
+     */
+    static <T> int renderPartitions(ExportRowWriter<? super T> rows, List<List<T>> partitions, List<SheetWriter> writers, Executor executor)
+            throws ReflectiveOperationException {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            List<T> partition = partitions.get(i);
+            SheetWriter writer = writers.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> fill(rows, partition, writer), executor));
+        }
+        try {
+            int last = 0;
+            for (CompletableFuture<Integer> future : futures) {
+                last = await(future);
+            }
+            return last;
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static <T> int fill(ExportRowWriter<? super T> rows, List<T> partition, SheetWriter writer) {
+        Object[] values = new Object[rows.getColumnCount()];
+        try {
+            for (T entity : partition) {
+                rows.extract(entity, values);
+                SheetWriter.convert(values);
+                writer.write(values);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new CompletionException(e);
+        }
+        return writer.finish();
+    }
+
+    private static <T> List<T> nextChunk(Iterator<T> entities, int chunkSize) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && entities.hasNext()) {
+            chunk.add(entities.next());
+        }
+        return chunk;
+    }
+
+    private static <T> Object[][] render(ExportRowWriter<? super T> rows, List<T> chunk) {
+        Object[][] values = new Object[chunk.size()][rows.getColumnCount()];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                rows.extract(chunk.get(i), values[i]);
+                SheetWriter.convert(values[i]);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new CompletionException(e);
+        }
+        return values;
+    }
+
+    /**
+     * Method waits for result of future and rethrows cause of its failure
+     *
+     * @param future - future
+     * @param <R>    - result
+     * @return result of future
+     * @throws ReflectiveOperationException if values can't be extracted
+     */
+    static <R> R await(CompletableFuture<R> future) throws ReflectiveOperationException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.softjourn.common.export;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking iterator over items of reactive publisher, e.g. of R2DBC query or message consumer.
+ * Publisher is subscribed when first item is requested and items are requested in bounded batches,
+ * next batch is requested only when half of previous one is consumed. So slow consumer, e.g. export
+ * into slow output, throttles publisher and at most batch size of items is kept in memory.
+ * Iterator blocks calling thread, so it shouldn't be used on event loop threads.
+ * Closing of iterator that is not fully consumed cancels subscription.
+ *
+ * @param <T> - entity
+ */
+public class PublisherIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private static final Object COMPLETE = new Object();
+
+    private final Flow.Publisher<? extends T> publisher;
+
+    private final int batchSize;
+
+    private final int replenishSize;
+
+    /**
+     * Items and terminal signal, size is bounded by requested demand
+     */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    private volatile Flow.Subscription subscription;
+
+    private boolean subscribed;
+
+    private boolean done;
+
+    private int consumed;
+
+    private T next;
+
+    /**
+     * @param publisher - publisher of entities
+     * @param batchSize - max number of entities that are requested and not consumed yet
+     */
+    public PublisherIterator(Flow.Publisher<? extends T> publisher, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be positive");
+        }
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.replenishSize = Math.max(1, batchSize / 2);
+    }
+
+    /**
+     * @throws CompletionException  if publisher signalled checked exception
+     * @throws CancellationException if thread was interrupted while waiting for publisher, subscription is cancelled
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        if (!subscribed) {
+            subscribed = true;
+            publisher.subscribe(new Subscriber());
+        }
+        Object item;
+        try {
+            item = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CancellationException("Interrupted while waiting for publisher");
+        }
+        if (item == COMPLETE) {
+            done = true;
+            return false;
+        }
+        if (item instanceof Failure) {
+            done = true;
+            Throwable cause = ((Failure) item).cause;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+        next = (T) item;
+        if (++consumed == replenishSize) {
+            consumed = 0;
+            subscription.request(replenishSize);
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = next;
+        next = null;
+        return item;
+    }
+
+    /**
+     * Method cancels subscription if publisher is not completed yet
+     */
+    @Override
+    public void close() {
+        if (!done) {
+            done = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+        next = null;
+        queue.clear();
+    }
+
+    private class Subscriber implements Flow.Subscriber<T> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (PublisherIterator.this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            PublisherIterator.this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(T item) {
+            queue.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            queue.add(new Failure(throwable));
+        }
+
+        @Override
+        public void onComplete() {
+            queue.add(COMPLETE);
+        }
+    }
+
+    private static class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,741 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+/**
+ * Export of entities into XLSX written by several threads.
+ * Rows of every sheet are split into shards of {@link ExportOptions#getRowsPerShard()} rows,
+ * every shard is rendered into SpreadsheetML with inline strings and deflated into its own temporary file
+ * by executor thread of options, so compression, which is the bottleneck of streaming workbook, runs on all threads.
+ * Workbook package is then assembled at zip entry level: compressed shards of sheet are concatenated into sheet entry
+ * and small workbook, styles and content types parts are added, nothing is parsed or compressed again.
+ * When sheet is full (its row limit or rows per sheet of options is reached) writing continues on new sheet
+ * "name_2", "name_3" and so on with repeated header. Column widths are estimated as there is no workbook to auto size
+ * them, aggregates of definers are written as summary rows with formulas.
+ * Number of shards rendered or waiting for writing is bounded by {@link ExportOptions#getMaxChunksInFlight()},
+ * shards are rendered on calling thread if executor is not set.
+ * Export is not registered as bean by itself, create it where sharded export is needed
+ */
+public class ShardedXlsxExport implements StreamingExportService {
+
+    /**
+     * Max number of rows on sheet including header
+     */
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Font height of default workbook font, widths of columns are measured in its characters
+     */
+    private static final short DEFAULT_FONT_HEIGHT = 11;
+
+    /**
+     * Index of {@link ExportStyle#DEFAULT} among cell styles, style 0 is default style of workbook
+     */
+    private static final int DEFAULT_STYLE = 1;
+
+    /**
+     * First index of custom data format, lower ones are built in
+     */
+    private static final int FIRST_CUSTOM_FORMAT = 164;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final String RELATIONSHIP_TYPE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-";
+
+    /**
+     * Method writes workbook of entities into output stream rendering shards on calling thread,
+     * stream is not closed by this method
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    @Override
+    public <T> void export(String name, List<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException {
+        export(name, entities, definers, new ExportOptions(), out);
+    }
+
+    /**
+     * Method writes workbook of entities into output stream, stream is not closed by this method
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param options  - export options, executor renders and compresses shards
+     * @param out      - output stream
+     */
+    public <T> void export(String name, List<T> entities, List<ExportDefiner> definers, ExportOptions options,
+                           OutputStream out) throws IOException, ReflectiveOperationException {
+        export(name, entities == null ? Collections.emptyIterator() : entities.iterator(), ExportPlan.of(definers),
+                options, out);
+    }
+
+    /**
+     * Method writes workbook of entities into output stream, entities are read by calling thread
+     * and are rendered by executor threads, stream is not closed by this method
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param rows     - row writer
+     * @param options  - export options, executor renders and compresses shards
+     * @param out      - output stream
+     */
+    public <T> void export(String name, Iterator<T> entities, ExportRowWriter<? super T> rows, ExportOptions options,
+                           OutputStream out) throws IOException, ReflectiveOperationException {
+        export(name, entities, rows, options, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * Method writes workbook of entities into channel, entities are read by calling thread
+     * and are rendered by executor threads, channel is not closed by this method
+     *
+     * @param name     - sheet name
+     * @param entities - data
+     * @param rows     - row writer
+     * @param options  - export options, executor renders and compresses shards
+     * @param out      - channel
+     * @throws IOException if workbook can't be written or it exceeds 4 GB
+     */
+    public <T> void export(String name, Iterator<T> entities, ExportRowWriter<? super T> rows, ExportOptions options,
+                           WritableByteChannel out) throws IOException, ReflectiveOperationException {
+        if (options.getRowsPerShard() <= 0 || options.getMaxChunksInFlight() <= 0) {
+            throw new IllegalArgumentException("Rows per shard and chunks in flight should be positive");
+        }
+        WorkbookUtil.validateSheetName(name);
+        Executor executor = options.getExecutor() == null ? Runnable::run : options.getExecutor();
+        LongConsumer listener = options.getChunkListener();
+        int capacity = options.getRowsPerSheet() > 0 ? Math.min(options.getRowsPerSheet(), MAX_ROWS - 1) : MAX_ROWS - 1;
+        Layout layout = new Layout(rows, options.getColumnWidth());
+        ExportSummary summary = ExportSummary.of(rows);
+
+        List<SheetPart> sheets = new ArrayList<>();
+        Deque<CompletableFuture<Shard>> pending = new ArrayDeque<>();
+        SheetPart sheet = new SheetPart(name);
+        sheets.add(sheet);
+        long written = 0;
+        try {
+            while (entities.hasNext()) {
+                if (sheet.rows == capacity) {
+                    sheet = new SheetPart(SheetWriter.nextSheetName(name, sheets.size() + 1));
+                    sheets.add(sheet);
+                }
+                List<T> chunk = nextChunk(entities, Math.min(options.getRowsPerShard(), capacity - sheet.rows));
+                int firstRow = sheet.rows + 1;
+                ExportSummary shardSummary = summary == null ? null : summary.copy();
+                CompletableFuture<Shard> shard = CompletableFuture.supplyAsync(
+                        () -> render(rows, chunk, firstRow, layout, shardSummary), executor);
+                sheet.rows += chunk.size();
+                sheet.shards.add(shard);
+                pending.add(shard);
+                while (pending.size() >= options.getMaxChunksInFlight()) {
+                    written = await(pending.poll(), written, listener);
+                }
+            }
+            while (!pending.isEmpty()) {
+                written = await(pending.poll(), written, listener);
+            }
+            if (summary != null && sheet.rows + summary.getRows().size() > MAX_ROWS - 1) {
+                sheet = new SheetPart(SheetWriter.nextSheetName(name, sheets.size() + 1));
+                sheets.add(sheet);
+            }
+            writePackage(sheets, layout, summary, out);
+        } finally {
+            delete(sheets);
+        }
+    }
+
+    private static <T> List<T> nextChunk(Iterator<T> entities, int size) {
+        List<T> chunk = new ArrayList<>(Math.min(size, ExportOptions.DEFAULT_ROWS_PER_SHARD));
+        while (chunk.size() < size && entities.hasNext()) {
+            chunk.add(entities.next());
+        }
+        return chunk;
+    }
+
+    private static long await(CompletableFuture<Shard> future, long written, LongConsumer listener)
+            throws IOException, ReflectiveOperationException {
+        Shard shard;
+        try {
+            shard = ParallelRowRenderer.await(future);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long total = written + shard.rows;
+        if (listener != null) {
+            listener.accept(total);
+        }
+        return total;
+    }
+
+    /**
+     * Method renders rows of shard and compresses them into temporary file
+     */
+    private static <T> Shard render(ExportRowWriter<? super T> rows, List<T> chunk, int firstRow, Layout layout,
+                                    ExportSummary summary) {
+        DeflatedSegment segment = null;
+        try {
+            segment = DeflatedSegment.inFile(false);
+            int[] lengths = new int[rows.getColumnCount()];
+            Object[] values = new Object[rows.getColumnCount()];
+            StringBuilder row = new StringBuilder(256);
+            try (Writer xml = writer(segment)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    rows.extract(chunk.get(i), values);
+                    SheetWriter.convert(values);
+                    if (summary != null) {
+                        summary.add(values);
+                    }
+                    row.setLength(0);
+                    layout.appendRow(row, firstRow + i, values, layout.isMeasured(firstRow + i) ? lengths : null);
+                    xml.append(row);
+                }
+            }
+            return new Shard(segment, chunk.size(), lengths, summary);
+        } catch (ReflectiveOperationException e) {
+            delete(segment);
+            throw new CompletionException(e);
+        } catch (IOException e) {
+            delete(segment);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            delete(segment);
+            throw e;
+        }
+    }
+
+    private static void writePackage(List<SheetPart> sheets, Layout layout, ExportSummary summary,
+                                     WritableByteChannel out) throws IOException {
+        List<String> sheetNames = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        int[][] lengths = new int[sheets.size()][];
+        for (int i = 0; i < sheets.size(); i++) {
+            SheetPart sheet = sheets.get(i);
+            lengths[i] = layout.headerLengths();
+            for (CompletableFuture<Shard> future : sheet.shards) {
+                Shard shard = future.join();
+                for (int column = 0; column < lengths[i].length; column++) {
+                    lengths[i][column] = Math.max(lengths[i][column], shard.lengths[column]);
+                }
+                if (summary != null) {
+                    summary.merge(shard.summary);
+                }
+            }
+            if (sheet.rows > 0) {
+                sheetNames.add(sheet.name);
+                ranges.add(new int[]{1, sheet.rows});
+            }
+        }
+
+        ZipAssembler zip = new ZipAssembler(out);
+        zip.add("[Content_Types].xml", deflate(contentTypes(sheets.size())));
+        zip.add("_rels/.rels", deflate(XML_DECLARATION + "<Relationships xmlns=\"" + RELATIONSHIPS_NAMESPACE + "\">"
+                + relationship(1, "officeDocument", "xl/workbook.xml") + "</Relationships>"));
+        zip.add("xl/workbook.xml", deflate(workbook(sheets)));
+        zip.add("xl/_rels/workbook.xml.rels", deflate(workbookRelationships(sheets.size())));
+        zip.add("xl/styles.xml", deflate(layout.styles()));
+        for (int i = 0; i < sheets.size(); i++) {
+            SheetPart sheet = sheets.get(i);
+            List<DeflatedSegment> segments = new ArrayList<>();
+            StringBuilder head = new StringBuilder(XML_DECLARATION).append("<worksheet xmlns=\"").append(MAIN_NAMESPACE)
+                    .append("\">");
+            layout.appendColumns(head, lengths[i]);
+            head.append("<sheetData>");
+            layout.appendHeader(head);
+            segments.add(deflate(head.toString(), false));
+            for (CompletableFuture<Shard> future : sheet.shards) {
+                segments.add(future.join().segment);
+            }
+            StringBuilder tail = new StringBuilder();
+            if (summary != null && i == sheets.size() - 1) {
+                List<String> names = new ArrayList<>();
+                for (String rangeSheet : sheetNames) {
+                    names.add(rangeSheet.equals(sheet.name) ? null : rangeSheet);
+                }
+                layout.appendSummary(tail, sheet.rows + 1, summary, names, ranges);
+            }
+            tail.append("</sheetData></worksheet>");
+            segments.add(deflate(tail.toString(), true));
+            zip.add("xl/worksheets/sheet" + (i + 1) + ".xml", segments);
+        }
+        zip.finish();
+    }
+
+    private static String contentTypes(int sheetCount) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"").append(CONTENT_TYPE)
+                .append("package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"").append(CONTENT_TYPE)
+                .append("officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"").append(CONTENT_TYPE)
+                .append("officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ContentType=\"")
+                    .append(CONTENT_TYPE).append("officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private static String workbook(List<SheetPart> sheets) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<workbook xmlns=\"").append(MAIN_NAMESPACE)
+                .append("\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            xml.append("<sheet name=\"");
+            escape(xml, sheets.get(i - 1).name);
+            xml.append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private static String workbookRelationships(int sheetCount) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<Relationships xmlns=\"")
+                .append(RELATIONSHIPS_NAMESPACE).append("\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            xml.append(relationship(i, "worksheet", "worksheets/sheet" + i + ".xml"));
+        }
+        xml.append(relationship(sheetCount + 1, "styles", "styles.xml"));
+        return xml.append("</Relationships>").toString();
+    }
+
+    private static String relationship(int id, String type, String target) {
+        return "<Relationship Id=\"rId" + id + "\" Type=\"" + RELATIONSHIP_TYPE + type + "\" Target=\"" + target + "\"/>";
+    }
+
+    private static List<DeflatedSegment> deflate(String xml) throws IOException {
+        return Collections.singletonList(deflate(xml, true));
+    }
+
+    private static DeflatedSegment deflate(String xml, boolean last) throws IOException {
+        DeflatedSegment segment = DeflatedSegment.inMemory(last);
+        try (Writer writer = writer(segment)) {
+            writer.write(xml);
+        }
+        return segment;
+    }
+
+    private static Writer writer(DeflatedSegment segment) {
+        return new BufferedWriter(new OutputStreamWriter(segment, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Method deletes temporary files of shards, shards that are not started are cancelled
+     * and running ones are awaited to delete their files too
+     */
+    private static void delete(List<SheetPart> sheets) {
+        for (SheetPart sheet : sheets) {
+            sheet.shards.forEach(future -> future.cancel(false));
+        }
+        for (SheetPart sheet : sheets) {
+            for (CompletableFuture<Shard> future : sheet.shards) {
+                try {
+                    delete(future.join().segment);
+                } catch (CancellationException | CompletionException e) {
+                    // shard is not rendered or has deleted its file
+                }
+            }
+        }
+    }
+
+    private static void delete(DeflatedSegment segment) {
+        try {
+            if (segment != null) {
+                segment.delete();
+            }
+        } catch (IOException ignored) {
+            // temporary file is deleted on best effort
+        }
+    }
+
+    /**
+     * Method appends text escaped for XML, characters that are not allowed in XML are skipped
+     */
+    private static void escape(StringBuilder xml, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '"':
+                    xml.append("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF || c == '\t' || c == '\n' || c == '\r') {
+                        xml.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Columns of export with their styles, renders rows into SpreadsheetML
+     */
+    private static final class Layout {
+
+        private final List<String> headers;
+
+        private final String[] references;
+
+        /**
+         * Cell style of every column and of its date values
+         */
+        private final int[] styles;
+
+        private final int[] dateStyles;
+
+        private final String[] formats;
+
+        private final String[] dateFormats;
+
+        /**
+         * Index of cell style by data format in order styles are written
+         */
+        private final Map<String, Integer> formatStyles = new LinkedHashMap<>();
+
+        private final ColumnWidth columnWidth;
+
+        private Layout(ExportRowWriter<?> rows, ColumnWidth columnWidth) {
+            int count = rows.getColumnCount();
+            this.headers = rows.getHeaders();
+            this.references = new String[count];
+            this.styles = new int[count];
+            this.dateStyles = new int[count];
+            this.formats = new String[count];
+            this.dateFormats = new String[count];
+            this.columnWidth = columnWidth;
+            for (int i = 0; i < count; i++) {
+                references[i] = CellReference.convertNumToColString(i);
+                formats[i] = rows.getFormats().get(i);
+                dateFormats[i] = formats[i] == null ? ExcelExport.DATE_TIME_FORMAT : formats[i];
+                styles[i] = style(formats[i]);
+                dateStyles[i] = style(dateFormats[i]);
+            }
+        }
+
+        private int style(String format) {
+            return format == null ? DEFAULT_STYLE
+                    : formatStyles.computeIfAbsent(format, key -> DEFAULT_STYLE + 1 + formatStyles.size());
+        }
+
+        /**
+         * @param row - index of row on sheet
+         * @return true if lengths of values of row are measured for widths of columns
+         */
+        private boolean isMeasured(int row) {
+            switch (columnWidth.getMode()) {
+                case FIXED:
+                    return false;
+                case SAMPLE:
+                    return row <= columnWidth.getValue();
+                default:
+                    return true;
+            }
+        }
+
+        private int[] headerLengths() {
+            int[] lengths = new int[references.length];
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = headers.get(i) == null ? 0 : headers.get(i).length();
+            }
+            return lengths;
+        }
+
+        private void appendColumns(StringBuilder xml, int[] lengths) {
+            if (references.length == 0) {
+                return;
+            }
+            double scale = (double) ExportStyle.DEFAULT.getFontHeight() / DEFAULT_FONT_HEIGHT;
+            xml.append("<cols>");
+            for (int i = 0; i < references.length; i++) {
+                int width = columnWidth.getMode() == ColumnWidth.Mode.FIXED
+                        ? columnWidth.getValue() : SheetWriter.width(lengths[i], scale);
+                xml.append("<col min=\"").append(i + 1).append("\" max=\"").append(i + 1)
+                        .append("\" width=\"").append(width).append("\" customWidth=\"1\"/>");
+            }
+            xml.append("</cols>");
+        }
+
+        private void appendHeader(StringBuilder xml) {
+            xml.append("<row r=\"1\">");
+            for (int i = 0; i < references.length; i++) {
+                appendText(xml, i, 1, headers.get(i));
+            }
+            xml.append("</row>");
+        }
+
+        /**
+         * Method appends row of converted values
+         *
+         * @param xml     - target
+         * @param row     - index of row on sheet
+         * @param values  - converted values
+         * @param lengths - max lengths of values by column, null if lengths are not measured
+         */
+        private void appendRow(StringBuilder xml, int row, Object[] values, int[] lengths) {
+            int number = row + 1;
+            xml.append("<row r=\"").append(number).append("\">");
+            for (int i = 0; i < references.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    appendCell(xml, i, number, styles[i]).append("/>");
+                    continue;
+                }
+                CellKind kind = CellKind.of(value.getClass());
+                switch (kind) {
+                    case NUMBER:
+                        appendNumber(xml, i, number, styles[i], (Number) value);
+                        break;
+                    case BOOLEAN:
+                        appendCell(xml, i, number, styles[i]).append(" t=\"b\"><v>")
+                                .append((Boolean) value ? '1' : '0').append("</v></c>");
+                        break;
+                    case DATE:
+                        appendDate(xml, i, number, DateUtil.getExcelDate((Date) value));
+                        break;
+                    case INSTANT:
+                        appendDate(xml, i, number, SheetWriter.toExcelDate((Instant) value));
+                        break;
+                    case LOCAL_DATE_TIME:
+                        appendDate(xml, i, number, SheetWriter.toExcelDate((LocalDateTime) value));
+                        break;
+                    case LOCAL_DATE:
+                        appendDate(xml, i, number, SheetWriter.toExcelDate((LocalDate) value));
+                        break;
+                    default:
+                        appendText(xml, i, number, value.toString());
+                }
+                if (lengths != null) {
+                    int length = SheetWriter.length(value, kind, kind.isDate() ? dateFormats[i] : formats[i]);
+                    lengths[i] = Math.max(lengths[i], length);
+                }
+            }
+            xml.append("</row>");
+        }
+
+        /**
+         * Method appends summary rows, aggregates are formulas over ranges with accumulated values cached
+         *
+         * @param xml        - target
+         * @param firstRow   - index of first summary row on sheet
+         * @param summary    - accumulated summary
+         * @param sheetNames - sheet of every range, null for sheet of summary
+         * @param ranges     - first and last row of every range of data rows
+         */
+        private void appendSummary(StringBuilder xml, int firstRow, ExportSummary summary, List<String> sheetNames,
+                                   List<int[]> ranges) {
+            boolean formulas = !ranges.isEmpty() && ranges.size() <= 255;
+            int number = firstRow;
+            for (ExportAggregate aggregate : summary.getRows()) {
+                number++;
+                xml.append("<row r=\"").append(number).append("\">");
+                for (int i = 0; i < references.length; i++) {
+                    if (!summary.has(i, aggregate)) {
+                        if (i == 0) {
+                            appendText(xml, i, number, aggregate.getLabel());
+                        }
+                        continue;
+                    }
+                    Number value = summary.getValue(i, aggregate);
+                    appendCell(xml, i, number, aggregate == ExportAggregate.COUNT ? DEFAULT_STYLE : styles[i]);
+                    if (!formulas && value == null) {
+                        xml.append("/>");
+                        continue;
+                    }
+                    xml.append('>');
+                    if (formulas) {
+                        xml.append("<f>");
+                        escape(xml, SheetWriter.formula(aggregate, i, sheetNames, ranges));
+                        xml.append("</f>");
+                    }
+                    if (value != null) {
+                        xml.append("<v>");
+                        appendNumberValue(xml, value);
+                        xml.append("</v>");
+                    }
+                    xml.append("</c>");
+                }
+                xml.append("</row>");
+            }
+        }
+
+        private StringBuilder appendCell(StringBuilder xml, int column, int row, int style) {
+            return xml.append("<c r=\"").append(references[column]).append(row).append("\" s=\"").append(style)
+                    .append('"');
+        }
+
+        private void appendText(StringBuilder xml, int column, int row, String text) {
+            appendCell(xml, column, row, DEFAULT_STYLE).append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            if (text != null) {
+                escape(xml, text);
+            }
+            xml.append("</t></is></c>");
+        }
+
+        private void appendNumber(StringBuilder xml, int column, int row, int style, Number value) {
+            appendCell(xml, column, row, style);
+            if (!isIntegral(value) && !Double.isFinite(value.doubleValue())) {
+                // NaN and infinity can't be stored in cell
+                xml.append("/>");
+                return;
+            }
+            xml.append("><v>");
+            appendNumberValue(xml, value);
+            xml.append("</v></c>");
+        }
+
+        private void appendDate(StringBuilder xml, int column, int row, double date) {
+            appendCell(xml, column, row, dateStyles[column]).append("><v>").append(date).append("</v></c>");
+        }
+
+        private static void appendNumberValue(StringBuilder xml, Number value) {
+            if (isIntegral(value)) {
+                xml.append(value.longValue());
+            } else {
+                xml.append(value.doubleValue());
+            }
+        }
+
+        private static boolean isIntegral(Number value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                    || value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE;
+        }
+
+        /**
+         * @return styles part with default workbook style, {@link ExportStyle#DEFAULT} and its data format variants
+         */
+        private String styles() {
+            ExportStyle style = ExportStyle.DEFAULT;
+            StringBuilder xml = new StringBuilder(XML_DECLARATION).append("<styleSheet xmlns=\"").append(MAIN_NAMESPACE)
+                    .append("\">");
+            int[] formatIds = new int[formatStyles.size()];
+            List<String> customFormats = new ArrayList<>();
+            int index = 0;
+            for (String format : formatStyles.keySet()) {
+                int builtin = BuiltinFormats.getBuiltinFormat(format);
+                formatIds[index++] = builtin >= 0 ? builtin : FIRST_CUSTOM_FORMAT + customFormats.size();
+                if (builtin < 0) {
+                    customFormats.add(format);
+                }
+            }
+            if (!customFormats.isEmpty()) {
+                xml.append("<numFmts count=\"").append(customFormats.size()).append("\">");
+                for (int i = 0; i < customFormats.size(); i++) {
+                    xml.append("<numFmt numFmtId=\"").append(FIRST_CUSTOM_FORMAT + i).append("\" formatCode=\"");
+                    escape(xml, customFormats.get(i));
+                    xml.append("\"/>");
+                }
+                xml.append("</numFmts>");
+            }
+            xml.append("<fonts count=\"2\"><font><sz val=\"").append(DEFAULT_FONT_HEIGHT)
+                    .append("\"/><name val=\"Calibri\"/></font><font>");
+            if (style.isBold()) {
+                xml.append("<b/>");
+            }
+            xml.append("<sz val=\"").append(style.getFontHeight()).append("\"/><name val=\"");
+            escape(xml, style.getFontName());
+            xml.append("\"/></font></fonts>")
+                    .append("<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>")
+                    .append("<fill><patternFill patternType=\"gray125\"/></fill></fills>")
+                    .append("<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>")
+                    .append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/>")
+                    .append("</cellStyleXfs><cellXfs count=\"").append(DEFAULT_STYLE + 1 + formatIds.length).append("\">")
+                    .append("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>")
+                    .append("<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>");
+            for (int formatId : formatIds) {
+                xml.append("<xf numFmtId=\"").append(formatId)
+                        .append("\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\" applyFont=\"1\"/>");
+            }
+            return xml.append("</cellXfs></styleSheet>").toString();
+        }
+    }
+
+    /**
+     * Sheet of workbook with shards of its rows in order
+     */
+    private static final class SheetPart {
+
+        private final String name;
+
+        private final List<CompletableFuture<Shard>> shards = new ArrayList<>();
+
+        /**
+         * Number of data rows
+         */
+        private int rows;
+
+        private SheetPart(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Compressed rows with lengths of their values and their summary
+     */
+    private static final class Shard {
+
+        private final DeflatedSegment segment;
+
+        private final int rows;
+
+        private final int[] lengths;
+
+        private final ExportSummary summary;
+
+        private Shard(DeflatedSegment segment, int rows, int[] lengths, ExportSummary summary) {
+            this.segment = segment;
+            this.rows = rows;
+            this.lengths = lengths;
+            this.summary = summary;
+        }
+    }
+}
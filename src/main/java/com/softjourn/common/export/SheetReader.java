@@ -0,0 +1,173 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser of sheet xml that reads one row at a time, so memory usage doesn't depend on size of sheet.
+ * Values of cells are read as strings, booleans, doubles or local date times for numbers with date format,
+ * empty and error cells are read as null.
+ */
+final class SheetReader implements AutoCloseable {
+
+    /**
+     * Factory with disabled DTDs and external entities
+     */
+    private static final XMLInputFactory FACTORY = XMLHelper.newXMLInputFactory();
+
+    private final XMLStreamReader reader;
+
+    private final SharedStrings strings;
+
+    private final StylesTable styles;
+
+    private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+
+    private final List<Object> cells = new ArrayList<>();
+
+    private int rowNumber;
+
+    SheetReader(InputStream sheet, SharedStrings strings, StylesTable styles) throws XMLStreamException {
+        this.reader = FACTORY.createXMLStreamReader(sheet);
+        this.strings = strings;
+        this.styles = styles;
+    }
+
+    /**
+     * Method reads next row, missing cells are filled with nulls
+     *
+     * @return values of row, list is reused for next row, or null if there are no more rows
+     */
+    List<Object> nextRow() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+                String reference = reader.getAttributeValue(null, "r");
+                rowNumber = reference == null ? rowNumber + 1 : Integer.parseInt(reference);
+                readRow();
+                return cells;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of last read row as it is shown in excel, starting from 1
+     */
+    int getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        reader.close();
+    }
+
+    private void readRow() throws XMLStreamException {
+        cells.clear();
+        int column = -1;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(reader.getLocalName())) {
+                return;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(reader.getLocalName())) {
+                String reference = reader.getAttributeValue(null, "r");
+                column = reference == null ? column + 1 : new CellReference(reference).getCol();
+                Object value = readCell();
+                while (cells.size() <= column) {
+                    cells.add(null);
+                }
+                cells.set(column, value);
+            }
+        }
+    }
+
+    private Object readCell() throws XMLStreamException {
+        String type = reader.getAttributeValue(null, "t");
+        String style = reader.getAttributeValue(null, "s");
+        String value = null;
+        String inline = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(reader.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("v".equals(reader.getLocalName())) {
+                    value = reader.getElementText();
+                } else if ("is".equals(reader.getLocalName())) {
+                    inline = readInlineString();
+                }
+            }
+        }
+        if (type == null || "n".equals(type)) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            double number = Double.parseDouble(value);
+            return isDateStyle(style) ? DateUtil.getLocalDateTime(number) : number;
+        }
+        switch (type) {
+            case "s":
+                return value == null ? null : strings.getItemAt(Integer.parseInt(value)).getString();
+            case "inlineStr":
+                return inline != null ? inline : value;
+            case "str":
+                return value;
+            case "b":
+                return value == null ? null : "1".equals(value) || "true".equals(value);
+            default:
+                // errors
+                return null;
+        }
+    }
+
+    /**
+     * Method reads text of inline string including rich text runs, phonetic runs are skipped
+     */
+    private String readInlineString() throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int phonetic = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("rPh".equals(reader.getLocalName())) {
+                    phonetic++;
+                } else if ("t".equals(reader.getLocalName()) && phonetic == 0) {
+                    text.append(reader.getElementText());
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("rPh".equals(reader.getLocalName())) {
+                    phonetic--;
+                } else if ("is".equals(reader.getLocalName())) {
+                    break;
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private boolean isDateStyle(String style) {
+        if (style == null || styles == null) {
+            return false;
+        }
+        return dateStyles.computeIfAbsent(Integer.parseInt(style), index -> {
+            XSSFCellStyle cellStyle = styles.getStyleAt(index);
+            return cellStyle != null && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+        });
+    }
+}
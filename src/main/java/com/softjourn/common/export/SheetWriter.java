@@ -0,0 +1,657 @@
+package com.softjourn.common.export;
+
+import com.softjourn.common.export.ColumnWidth.Mode;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes rows of converted values into sheet one after another.
+ * When sheet is full (its row limit or configured rows per sheet is reached)
+ * writing continues on new sheet "name_2", "name_3" and so on with repeated header.
+ * Values are converted by {@link #convert(Object[])} that doesn't touch workbook,
+ * so conversion can be done by other threads while writing is sequential.
+ * Numbers, booleans and dates are written as typed cells, kind of value is resolved once per column
+ * while values of column have the same class.
+ * If summary is set, written values are accumulated into it and summary rows can be written after last row.
+ */
+class SheetWriter {
+
+    /**
+     * Max column width supported by sheets in characters
+     */
+    private static final int MAX_WIDTH = 255;
+
+    /**
+     * Padding added to estimated width in characters
+     */
+    private static final int PADDING = 2;
+
+    /**
+     * Excel General format shows at most 11 characters of number
+     */
+    private static final int MAX_NUMBER_LENGTH = 11;
+
+    /**
+     * Max length of sheet name
+     */
+    private static final int MAX_SHEET_NAME = 31;
+
+    /**
+     * Max number of ranges in summary formula, spreadsheet functions accept at most 255 arguments
+     */
+    private static final int MAX_FORMULA_RANGES = 255;
+
+    private static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private static final double NANOS_PER_DAY = SECONDS_PER_DAY * 1_000_000_000L;
+
+    /**
+     * Excel date of 1970-01-01, Excel counts days from 1899-12-30
+     */
+    private static final long EPOCH_EXCEL_DATE = 25569;
+
+    /**
+     * Epoch day of 1900-03-01, Excel treats 1900 as leap year so dates before it are calculated by POI
+     */
+    private static final long FIRST_REGULAR_EPOCH_DAY = -25508;
+
+    private final Workbook workbook;
+
+    private final String name;
+
+    private final CellStyle[] styles;
+
+    private final CellStyle[] dateStyles;
+
+    private final CellStyle headerStyle;
+
+    private final List<String> headers;
+
+    private final int rowsPerSheet;
+
+    private final int chunkSize;
+
+    private final LongConsumer chunkListener;
+
+    private final ColumnWidth columnWidth;
+
+    private final List<Sheet> sheets = new ArrayList<>();
+
+    /**
+     * First and last data row of every sheet, last row of current sheet is updated when summary is written
+     */
+    private final List<int[]> rowRanges = new ArrayList<>();
+
+    /**
+     * Class of last value by column and kind it is written as
+     */
+    private final Class<?>[] types;
+
+    private final CellKind[] kinds;
+
+    /**
+     * Max length of values by column in characters, null if widths are not estimated
+     */
+    private final int[] lengths;
+
+    private Sheet sheet;
+
+    /**
+     * Row number of first row on current sheet
+     */
+    private int firstRow;
+
+    private int writtenOnSheet;
+
+    private long written;
+
+    private ExportSummary summary;
+
+    private boolean finished;
+
+    /**
+     * @param sheet         - sheet to start writing into
+     * @param styles        - style of every column
+     * @param dateStyles    - style of every column for date values
+     * @param headerStyle   - style of header repeated on next sheets
+     * @param headers       - headers of columns
+     * @param firstRow      - number of first row to write
+     * @param options       - export options
+     * @param chunkListener - listener notified with number of rows written after every chunk
+     */
+    SheetWriter(Sheet sheet, CellStyle[] styles, CellStyle[] dateStyles, CellStyle headerStyle, List<String> headers,
+                int firstRow, ExportOptions options, LongConsumer chunkListener) {
+        if (chunkListener != null && options.getChunkSize() <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive but was " + options.getChunkSize());
+        }
+        this.workbook = sheet.getWorkbook();
+        this.name = sheet.getSheetName();
+        this.styles = styles;
+        this.dateStyles = dateStyles;
+        this.types = new Class<?>[styles.length];
+        this.kinds = new CellKind[styles.length];
+        this.headerStyle = headerStyle;
+        this.headers = headers;
+        this.rowsPerSheet = options.getRowsPerSheet() > 0 ? options.getRowsPerSheet() : Integer.MAX_VALUE;
+        this.chunkSize = options.getChunkSize();
+        this.chunkListener = chunkListener;
+        this.columnWidth = options.getColumnWidth();
+        Mode mode = columnWidth.getMode();
+        if (mode == Mode.ESTIMATED || mode == Mode.SAMPLE) {
+            lengths = new int[styles.length];
+            for (int i = 0; headers != null && i < lengths.length; i++) {
+                lengths[i] = headers.get(i) == null ? 0 : headers.get(i).length();
+            }
+        } else {
+            lengths = null;
+        }
+        startSheet(sheet, firstRow);
+    }
+
+    /**
+     * Method calculates number of rows that fit on sheet starting from row
+     *
+     * @param workbook - workbook
+     * @param firstRow - number of first row
+     * @param options  - export options
+     * @return int - number of rows
+     */
+    static int capacity(Workbook workbook, int firstRow, ExportOptions options) {
+        int capacity = workbook.getSpreadsheetVersion().getLastRowIndex() - firstRow + 1;
+        return options.getRowsPerSheet() > 0 ? Math.min(options.getRowsPerSheet(), capacity) : capacity;
+    }
+
+    /**
+     * Method creates sheet named after base sheet with next free number and writes header into first row
+     *
+     * @param workbook    - workbook
+     * @param name        - base sheet name
+     * @param headers     - headers, header row is not written if null
+     * @param headerStyle - style of headers
+     * @return Sheet
+     */
+    static Sheet createNextSheet(Workbook workbook, String name, List<String> headers, CellStyle headerStyle) {
+        Sheet sheet = null;
+        for (int number = 2; sheet == null; number++) {
+            String next = nextSheetName(name, number);
+            if (workbook.getSheet(next) == null) {
+                sheet = workbook.createSheet(next);
+            }
+        }
+        if (headers != null) {
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < headers.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(headers.get(i));
+                cell.setCellStyle(headerStyle);
+            }
+        }
+        return sheet;
+    }
+
+    /**
+     * Method names continuation of sheet, base name is shortened so name fits into sheet name limit
+     *
+     * @param name   - base sheet name
+     * @param number - number of continuation starting from 2
+     * @return String - e.g. "name_2"
+     */
+    static String nextSheetName(String name, int number) {
+        String suffix = "_" + number;
+        return name.substring(0, Math.min(name.length(), MAX_SHEET_NAME - suffix.length())) + suffix;
+    }
+
+    /**
+     * @param name      - name of first sheet
+     * @param sheetName - name of checked sheet
+     * @return true if sheet has name that {@link #createNextSheet} gives to continuation of first sheet
+     */
+    static boolean isNextSheet(String name, String sheetName) {
+        int separator = sheetName.lastIndexOf('_');
+        if (separator < 0 || separator == sheetName.length() - 1) {
+            return false;
+        }
+        for (int i = separator + 1; i < sheetName.length(); i++) {
+            if (!Character.isDigit(sheetName.charAt(i))) {
+                return false;
+            }
+        }
+        String number = sheetName.substring(separator + 1);
+        return number.length() < 10 && sheetName.equals(nextSheetName(name, Integer.parseInt(number)));
+    }
+
+    /**
+     * Method converts extracted values into values that can be set into cell,
+     * values of known kinds are kept as is and others are replaced with their string form
+     *
+     * @param values - extracted values, are replaced with converted ones
+     */
+    static void convert(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null && CellKind.of(value.getClass()) == CellKind.OTHER) {
+                values[i] = value.toString();
+            }
+        }
+    }
+
+    /**
+     * Method converts instant into Excel date in UTC
+     *
+     * @param instant - instant
+     * @return double - days since 1899-12-30 with fraction of day
+     */
+    static double toExcelDate(Instant instant) {
+        return toExcelDate(instant.getEpochSecond(), instant.getNano());
+    }
+
+    /**
+     * Method converts time since epoch into Excel date in UTC
+     *
+     * @param epochSecond - seconds since epoch
+     * @param nanos       - nanoseconds of second
+     * @return double - days since 1899-12-30 with fraction of day
+     */
+    static double toExcelDate(long epochSecond, int nanos) {
+        long epochDay = Math.floorDiv(epochSecond, (long) SECONDS_PER_DAY);
+        if (epochDay < FIRST_REGULAR_EPOCH_DAY) {
+            return DateUtil.getExcelDate(LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC));
+        }
+        long secondOfDay = Math.floorMod(epochSecond, (long) SECONDS_PER_DAY);
+        return epochDay + EPOCH_EXCEL_DATE + (secondOfDay + nanos / 1e9) / SECONDS_PER_DAY;
+    }
+
+    /**
+     * Method converts local date time into Excel date
+     *
+     * @param dateTime - date time
+     * @return double - days since 1899-12-30 with fraction of day
+     */
+    static double toExcelDate(LocalDateTime dateTime) {
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        if (epochDay < FIRST_REGULAR_EPOCH_DAY) {
+            return DateUtil.getExcelDate(dateTime);
+        }
+        return epochDay + EPOCH_EXCEL_DATE + dateTime.toLocalTime().toNanoOfDay() / NANOS_PER_DAY;
+    }
+
+    /**
+     * Method converts local date into Excel date
+     *
+     * @param date - date
+     * @return double - days since 1899-12-30
+     */
+    static double toExcelDate(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (epochDay < FIRST_REGULAR_EPOCH_DAY) {
+            return DateUtil.getExcelDate(date);
+        }
+        return epochDay + EPOCH_EXCEL_DATE;
+    }
+
+    /**
+     * Method writes converted values into next row
+     *
+     * @param values - converted values
+     */
+    void write(Object[] values) {
+        Row row = nextRow();
+        for (int column = 0; column < values.length; column++) {
+            setValue(row.createCell(column), column, values[column]);
+        }
+        if (isMeasured()) {
+            measure(values);
+        }
+        if (summary != null) {
+            summary.add(values);
+        }
+        rowWritten();
+    }
+
+    /**
+     * @param summary - summary that accumulates written values
+     */
+    void setSummary(ExportSummary summary) {
+        this.summary = summary;
+    }
+
+    /**
+     * @return summary that accumulates written values, null if it is not set
+     */
+    ExportSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Method writes summary rows after last written row, one row per aggregate.
+     * Aggregates are written as formulas over data rows of all writers with accumulated values cached,
+     * so summary is shown without recalculation. Values without formulas are written if there are no data rows
+     * or formula would have too many ranges.
+     * Summary rows are not counted as written rows and don't notify chunk listener
+     *
+     * @param summary - accumulated summary
+     * @param writers - writers that wrote data rows in order, including this one
+     * @return int - row number of last summary row
+     */
+    int writeSummary(ExportSummary summary, List<SheetWriter> writers) {
+        List<Sheet> rangeSheets = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        for (SheetWriter writer : writers) {
+            writer.rowRanges.get(writer.rowRanges.size() - 1)[1] = writer.firstRow + writer.writtenOnSheet - 1;
+            for (int i = 0; i < writer.sheets.size(); i++) {
+                int[] range = writer.rowRanges.get(i);
+                if (range[1] >= range[0]) {
+                    rangeSheets.add(writer.sheets.get(i));
+                    ranges.add(range);
+                }
+            }
+        }
+        boolean formulas = !ranges.isEmpty() && ranges.size() <= MAX_FORMULA_RANGES;
+        for (ExportAggregate aggregate : summary.getRows()) {
+            if (firstRow + writtenOnSheet > workbook.getSpreadsheetVersion().getLastRowIndex()) {
+                startSheet(createNextSheet(workbook, name, headers, headerStyle), headers == null ? 0 : 1);
+            }
+            Row row = sheet.createRow(firstRow + writtenOnSheet);
+            // ranges of other sheets are prefixed with sheet name
+            List<String> sheetNames = new ArrayList<>();
+            for (Sheet rangeSheet : rangeSheets) {
+                sheetNames.add(rangeSheet == sheet ? null : rangeSheet.getSheetName());
+            }
+            for (int column = 0; column < styles.length; column++) {
+                if (!summary.has(column, aggregate)) {
+                    if (column == 0) {
+                        Cell cell = row.createCell(column);
+                        cell.setCellValue(aggregate.getLabel());
+                        cell.setCellStyle(headerStyle);
+                        measure(0, aggregate.getLabel().length());
+                    }
+                    continue;
+                }
+                Cell cell = row.createCell(column);
+                Number value = summary.getValue(column, aggregate);
+                if (formulas) {
+                    cell.setCellFormula(formula(aggregate, column, sheetNames, ranges));
+                }
+                if (value != null) {
+                    // value of formula cell is cached result of formula
+                    cell.setCellValue(value.doubleValue());
+                    measure(column, numberLength(value.doubleValue()));
+                } else if (!formulas) {
+                    cell.setCellValue("");
+                }
+                cell.setCellStyle(aggregate == ExportAggregate.COUNT ? headerStyle : styles[column]);
+            }
+            writtenOnSheet++;
+        }
+        if (finished) {
+            resizeColumns(sheet);
+        }
+        return firstRow + writtenOnSheet - 1;
+    }
+
+    /**
+     * Method writes values of dataset row into next row, primitive values are set into cells directly
+     *
+     * @param dataset - dataset
+     * @param index   - index of row in dataset
+     */
+    void write(ColumnarDataset dataset, int index) {
+        Row row = nextRow();
+        boolean measured = isMeasured();
+        for (int column = 0; column < dataset.getColumnCount(); column++) {
+            Cell cell = row.createCell(column);
+            double number;
+            switch (dataset.getType(column)) {
+                case LONG:
+                    number = dataset.getLongs(column)[index];
+                    break;
+                case INT:
+                    number = dataset.getInts(column)[index];
+                    break;
+                case DOUBLE:
+                    number = dataset.getDoubles(column)[index];
+                    break;
+                case BOOLEAN:
+                    cell.setCellValue(dataset.getBooleans(column)[index]);
+                    cell.setCellStyle(styles[column]);
+                    measure(column, measured ? 5 : 0);
+                    continue;
+                case DATE:
+                    long epochMillis = dataset.getLongs(column)[index];
+                    int nanos = (int) Math.floorMod(epochMillis, 1000L) * 1_000_000;
+                    cell.setCellValue(toExcelDate(Math.floorDiv(epochMillis, 1000L), nanos));
+                    cell.setCellStyle(dateStyles[column]);
+                    measure(column, measured ? dateLength(dateStyles[column].getDataFormatString()) : 0);
+                    continue;
+                default:
+                    Object value = dataset.getObjects(column)[index];
+                    if (value != null && CellKind.of(value.getClass()) == CellKind.OTHER) {
+                        value = value.toString();
+                    }
+                    setValue(cell, column, value);
+                    measure(column, measured && value != null
+                            ? length(value, kinds[column], cell.getCellStyle().getDataFormatString()) : 0);
+                    continue;
+            }
+            if (Double.isNaN(number)) {
+                cell.setCellValue("");
+            } else {
+                cell.setCellValue(number);
+                measure(column, measured ? numberLength(number) : 0);
+            }
+            cell.setCellStyle(styles[column]);
+        }
+        rowWritten();
+    }
+
+    private Row nextRow() {
+        if (writtenOnSheet >= rowsPerSheet || firstRow + writtenOnSheet > workbook.getSpreadsheetVersion().getLastRowIndex()) {
+            startSheet(createNextSheet(workbook, name, headers, headerStyle), headers == null ? 0 : 1);
+        }
+        return sheet.createRow(firstRow + writtenOnSheet);
+    }
+
+    private void rowWritten() {
+        writtenOnSheet++;
+        written++;
+        if (chunkListener != null && written % chunkSize == 0) {
+            chunkListener.accept(written);
+        }
+    }
+
+    private void setValue(Cell cell, int column, Object value) {
+        if (value == null) {
+            cell.setCellValue("");
+            cell.setCellStyle(styles[column]);
+            return;
+        }
+        CellKind kind = kind(column, value);
+        switch (kind) {
+            case NUMBER:
+                cell.setCellValue(((Number) value).doubleValue());
+                break;
+            case BOOLEAN:
+                cell.setCellValue((Boolean) value);
+                break;
+            case DATE:
+                cell.setCellValue((Date) value);
+                break;
+            case INSTANT:
+                cell.setCellValue(toExcelDate((Instant) value));
+                break;
+            case LOCAL_DATE_TIME:
+                cell.setCellValue(toExcelDate((LocalDateTime) value));
+                break;
+            case LOCAL_DATE:
+                cell.setCellValue(toExcelDate((LocalDate) value));
+                break;
+            default:
+                cell.setCellValue(value.toString());
+        }
+        cell.setCellStyle(kind.isDate() ? dateStyles[column] : styles[column]);
+    }
+
+    /**
+     * Method completes writing and sizes columns of all written sheets
+     *
+     * @return int - row number of last written row on last sheet
+     */
+    int finish() {
+        if (chunkListener != null && written % chunkSize != 0) {
+            chunkListener.accept(written);
+        }
+        if (written > 0) {
+            for (Sheet completed : sheets) {
+                resizeColumns(completed);
+            }
+        }
+        finished = true;
+        return firstRow + writtenOnSheet - 1;
+    }
+
+    private void startSheet(Sheet next, int row) {
+        if (!rowRanges.isEmpty()) {
+            rowRanges.get(rowRanges.size() - 1)[1] = firstRow + writtenOnSheet - 1;
+        }
+        rowRanges.add(new int[]{row, row - 1});
+        if (columnWidth.getMode() == Mode.EXACT && next instanceof SXSSFSheet) {
+            // flushed rows are not available for auto sizing so widths have to be tracked while writing
+            ((SXSSFSheet) next).trackAllColumnsForAutoSizing();
+        }
+        sheets.add(next);
+        sheet = next;
+        firstRow = row;
+        writtenOnSheet = 0;
+    }
+
+    private void resizeColumns(Sheet sheet) {
+        switch (columnWidth.getMode()) {
+            case EXACT:
+                for (int i = 0; i < styles.length; i++) {
+                    sheet.autoSizeColumn(i);
+                }
+                break;
+            case FIXED:
+                for (int i = 0; i < styles.length; i++) {
+                    sheet.setColumnWidth(i, columnWidth.getValue() * 256);
+                }
+                break;
+            default:
+                double defaultHeight = workbook.getFontAt(0).getFontHeightInPoints();
+                for (int i = 0; i < styles.length; i++) {
+                    // widths are measured in characters of default font, wider fonts need more of them
+                    double scale = workbook.getFontAt(styles[i].getFontIndex()).getFontHeightInPoints() / defaultHeight;
+                    sheet.setColumnWidth(i, width(lengths[i], scale) * 256);
+                }
+        }
+    }
+
+    /**
+     * Method builds formula of aggregate over column of ranges
+     *
+     * @param aggregate  - aggregate
+     * @param column     - column
+     * @param sheetNames - sheet of every range, null for sheet the formula is written into
+     * @param ranges     - first and last row of every range
+     * @return String - formula, e.g. "SUM(B2:B65536,'orders_2'!B2:B11)"
+     */
+    static String formula(ExportAggregate aggregate, int column, List<String> sheetNames, List<int[]> ranges) {
+        StringJoiner arguments = new StringJoiner(",", aggregate.name() + "(", ")");
+        for (int i = 0; i < ranges.size(); i++) {
+            CellRangeAddress range = new CellRangeAddress(ranges.get(i)[0], ranges.get(i)[1], column, column);
+            arguments.add(range.formatAsString(sheetNames.get(i), false));
+        }
+        return arguments.toString();
+    }
+
+    private CellKind kind(int column, Object value) {
+        Class<?> type = value.getClass();
+        if (type != types[column]) {
+            types[column] = type;
+            kinds[column] = CellKind.of(type);
+        }
+        return kinds[column];
+    }
+
+    private boolean isMeasured() {
+        return lengths != null && (columnWidth.getMode() == Mode.ESTIMATED || written < columnWidth.getValue());
+    }
+
+    private void measure(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            measure(i, values[i] == null ? 0
+                    : length(values[i], kinds[i], (kinds[i].isDate() ? dateStyles[i] : styles[i]).getDataFormatString()));
+        }
+    }
+
+    private void measure(int column, int length) {
+        if (lengths != null && length > lengths[column]) {
+            lengths[column] = length;
+        }
+    }
+
+    /**
+     * Method calculates width of column from max length of its values
+     *
+     * @param length - max length of values in characters of default font
+     * @param scale  - ratio of column font size to default font size
+     * @return int - width in characters
+     */
+    static int width(int length, double scale) {
+        return Math.min((int) Math.ceil(length * Math.max(scale, 1)) + PADDING, MAX_WIDTH);
+    }
+
+    /**
+     * Method estimates length of value shown in cell
+     *
+     * @param value      - value
+     * @param kind       - kind value is written as
+     * @param dataFormat - data format of cell
+     * @return int - length in characters
+     */
+    static int length(Object value, CellKind kind, String dataFormat) {
+        if (kind == CellKind.NUMBER) {
+            return numberLength(((Number) value).doubleValue());
+        }
+        if (kind == CellKind.BOOLEAN) {
+            return 5;
+        }
+        if (kind.isDate()) {
+            return dateLength(dataFormat);
+        }
+        return value.toString().length();
+    }
+
+    static int numberLength(double number) {
+        if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+            long integral = (long) number;
+            int length = integral < 0 ? 2 : 1;
+            for (long rest = Math.abs(integral); rest >= 10; rest /= 10) {
+                length++;
+            }
+            return Math.min(length, MAX_NUMBER_LENGTH);
+        }
+        return MAX_NUMBER_LENGTH;
+    }
+
+    private static int dateLength(String dataFormat) {
+        // dates are shown in format of style
+        return Math.max(dataFormat == null ? 0 : dataFormat.length(), 10);
+    }
+}
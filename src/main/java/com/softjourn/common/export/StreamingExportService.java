@@ -0,0 +1,23 @@
+package com.softjourn.common.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Export that writes report directly into output stream, e.g. CSV export that doesn't create workbooks
+ */
+public interface StreamingExportService {
+
+    /**
+     * Method exports entities directly into output stream, stream is not closed by this method
+     *
+     * @param name     - report name
+     * @param entities - data
+     * @param definers - defines data to be recorded
+     * @param out      - output stream
+     */
+    <T> void export(String name, List<T> entities, List<ExportDefiner> definers, OutputStream out)
+            throws IOException, ReflectiveOperationException;
+
+}
@@ -0,0 +1,60 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Registry of cell styles created for workbooks.
+ * Workbooks limit number of styles (about 4000 for xls, 64000 for xlsx),
+ * so every style definition is created once per workbook and then shared by all cells.
+ */
+final class StyleRegistry {
+
+    /**
+     * Style indexes by workbook, indexes are stored instead of styles because style references its workbook
+     */
+    private static final Map<Workbook, Map<ExportStyle, Integer>> STYLES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private StyleRegistry() {
+    }
+
+    /**
+     * Method gets style from workbook creating it on first call
+     *
+     * @param workbook - workbook
+     * @param style    - style definition
+     * @return CellStyle
+     */
+    static CellStyle getStyle(Workbook workbook, ExportStyle style) {
+        Map<ExportStyle, Integer> styles = STYLES.computeIfAbsent(workbook, key -> new HashMap<>());
+        synchronized (styles) {
+            Integer index = styles.get(style);
+            if (index == null) {
+                index = Integer.valueOf(createStyle(workbook, style).getIndex());
+                styles.put(style, index);
+            }
+            return workbook.getCellStyleAt(index);
+        }
+    }
+
+    private static CellStyle createStyle(Workbook workbook, ExportStyle definition) {
+        Font font = workbook.createFont();
+        font.setFontHeightInPoints(definition.getFontHeight());
+        font.setFontName(definition.getFontName());
+        font.setBold(definition.isBold());
+
+        CellStyle style = workbook.createCellStyle();
+        style.setFont(font);
+        if (definition.getDataFormat() != null) {
+            style.setDataFormat(workbook.createDataFormat().getFormat(definition.getDataFormat()));
+        }
+
+        return style;
+    }
+}
@@ -0,0 +1,246 @@
+package com.softjourn.common.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes zip archive from entries that are already compressed, entry data is copied without recompression.
+ * Every entry is concatenation of {@link DeflatedSegment}s, its CRC is combined from CRCs of segments,
+ * so uncompressed data is not read again.
+ * ZIP64 is not supported: archive, its entries and their uncompressed data should be smaller than 4 GB
+ * and archive can have at most 65535 entries.
+ */
+final class ZipAssembler {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    private static final int CENTRAL_HEADER = 0x02014b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    /**
+     * Version 2.0 that supports deflate
+     */
+    private static final short VERSION = 20;
+
+    private static final short DEFLATED = 8;
+
+    /**
+     * Max value of 32-bit size or offset
+     */
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final long CRC_POLYNOMIAL = 0xedb88320L;
+
+    private final WritableByteChannel out;
+
+    private final short time;
+
+    private final short date;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private long offset;
+
+    /**
+     * @param out - channel archive is written into, it is not closed by assembler
+     */
+    ZipAssembler(WritableByteChannel out) {
+        this.out = out;
+        LocalDateTime now = LocalDateTime.now();
+        this.time = (short) (now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() / 2);
+        this.date = (short) ((Math.max(now.getYear(), 1980) - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth());
+    }
+
+    /**
+     * Method writes entry, last segment should end with final block
+     *
+     * @param name     - name of entry, e.g. "xl/workbook.xml"
+     * @param segments - compressed data of entry in order
+     * @throws IOException if archive exceeds limits of zip format
+     */
+    void add(String name, List<DeflatedSegment> segments) throws IOException {
+        if (entries.size() == MAX_ENTRIES) {
+            throw new IOException("Zip archive can't have more than " + MAX_ENTRIES + " entries");
+        }
+        long crc = 0;
+        long size = 0;
+        long compressedSize = 0;
+        for (DeflatedSegment segment : segments) {
+            crc = combine(crc, segment.getCrc(), segment.getSize());
+            size += segment.getSize();
+            compressedSize += segment.getCompressedSize();
+        }
+        if (size > MAX_SIZE || compressedSize > MAX_SIZE || offset > MAX_SIZE) {
+            throw new IOException("Entry " + name + " exceeds 4 GB, ZIP64 is not supported");
+        }
+        Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), crc, size, compressedSize, offset);
+        ByteBuffer header = buffer(30 + entry.name.length)
+                .putInt(LOCAL_HEADER)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putShort(DEFLATED)
+                .putShort(time)
+                .putShort(date)
+                .putInt((int) crc)
+                .putInt((int) compressedSize)
+                .putInt((int) size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0)
+                .put(entry.name);
+        write(header);
+        for (DeflatedSegment segment : segments) {
+            segment.transferTo(out);
+        }
+        offset += compressedSize;
+        entries.add(entry);
+    }
+
+    /**
+     * Method writes central directory, archive is complete after it
+     *
+     * @throws IOException if archive exceeds limits of zip format
+     */
+    void finish() throws IOException {
+        long directoryOffset = offset;
+        for (Entry entry : entries) {
+            ByteBuffer header = buffer(46 + entry.name.length)
+                    .putInt(CENTRAL_HEADER)
+                    .putShort(VERSION)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putShort(DEFLATED)
+                    .putShort(time)
+                    .putShort(date)
+                    .putInt((int) entry.crc)
+                    .putInt((int) entry.compressedSize)
+                    .putInt((int) entry.size)
+                    .putShort((short) entry.name.length)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt((int) entry.offset)
+                    .put(entry.name);
+            write(header);
+        }
+        long directorySize = offset - directoryOffset;
+        if (directoryOffset > MAX_SIZE || directorySize > MAX_SIZE) {
+            throw new IOException("Zip archive exceeds 4 GB, ZIP64 is not supported");
+        }
+        ByteBuffer end = buffer(22)
+                .putInt(END_OF_CENTRAL_DIRECTORY)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) entries.size())
+                .putShort((short) entries.size())
+                .putInt((int) directorySize)
+                .putInt((int) directoryOffset)
+                .putShort((short) 0);
+        write(end);
+    }
+
+    /**
+     * Method combines CRC-32 of two consecutive blocks of data into CRC-32 of their concatenation,
+     * it is the algorithm of crc32_combine of zlib: CRC of first block is shifted by length of second block
+     * with squared shift operators over GF(2)
+     *
+     * @param crc1 - CRC of first block
+     * @param crc2 - CRC of second block
+     * @param len2 - length of second block
+     * @return long - CRC of concatenation
+     */
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        // operator for one zero bit
+        odd[0] = CRC_POLYNOMIAL;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // operators for two and four zero bits
+        square(even, odd);
+        square(odd, even);
+        // apply len2 zeros to crc1, first square puts operator for one zero byte into even
+        long length = len2;
+        do {
+            square(even, odd);
+            if ((length & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length >>= 1;
+        } while (length != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    private static ByteBuffer buffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        data.flip();
+        offset += data.remaining();
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] name;
+
+        private final long crc;
+
+        private final long size;
+
+        private final long compressedSize;
+
+        private final long offset;
+
+        private Entry(byte[] name, long crc, long size, long compressedSize, long offset) {
+            this.name = name;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.softjourn.common.export.processor;
+
+import com.softjourn.common.export.ExportColumn;
+import com.softjourn.common.export.ExportNested;
+import com.softjourn.common.export.ExportRowWriter;
+import com.softjourn.common.export.ExportRowWriters;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates {@link ExportRowWriter} for every class with {@link ExportColumn} or {@link ExportNested} members.
+ * Generated writer is placed into package of class and reads values by direct calls of getters or fields,
+ * so rows are filled without reflection. Writers are found at runtime by {@link ExportRowWriters#of(Class)}.
+ * Processor is registered as service, so it runs when this library is on compile classpath.
+ */
+@SupportedAnnotationTypes({
+        "com.softjourn.common.export.ExportColumn",
+        "com.softjourn.common.export.ExportNested"
+})
+public class ExportRowWriterProcessor extends AbstractProcessor {
+
+    /**
+     * Lombok annotations that generate getters of private fields, the getters are not visible to this processor
+     * if lombok runs after it
+     */
+    private static final Set<String> GETTER_ANNOTATIONS = Set.of("lombok.Data", "lombok.Getter", "lombok.Value");
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement type : types) {
+            if (generated.add(type.getQualifiedName().toString())) {
+                generate(type);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        if (!isVisible(type)) {
+            error(type, "Class with export columns should be top level or static nested class that is not private");
+            return;
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleNames = type.getQualifiedName().toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String writerName = ExportRowWriters.writerName(packageName, simpleNames);
+        String writerSimpleName = writerName.substring(writerName.lastIndexOf('.') + 1);
+
+        Source source = new Source(packageName);
+        StringBuilder body = new StringBuilder();
+        Deque<TypeElement> path = new ArrayDeque<>();
+        path.push(type);
+        if (!extract(type, "entity", body, source, path, "        ")) {
+            return;
+        }
+
+        String entityType = typeName(type.asType());
+        int width = source.headers.size();
+        StringBuilder code = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("/**\n")
+                .append(" * Row writer of {@link ").append(entityType).append("}, generated by ")
+                .append(ExportRowWriterProcessor.class.getSimpleName()).append(", do not edit\n")
+                .append(" */\n")
+                .append("public final class ").append(writerSimpleName)
+                .append(" implements ").append(ExportRowWriter.class.getName()).append('<').append(entityType).append("> {\n\n")
+                .append("    private static final java.util.List<String> HEADERS = ").append(list(source.headers)).append(";\n\n")
+                .append("    private static final java.util.List<String> FORMATS = ").append(list(source.formats)).append(";\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<String> getHeaders() {\n")
+                .append("        return HEADERS;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<String> getFormats() {\n")
+                .append("        return FORMATS;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public int getColumnCount() {\n")
+                .append("        return ").append(width).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void extract(").append(entityType).append(" entity, Object[] row) {\n")
+                .append("        if (entity == null) {\n")
+                .append("            java.util.Arrays.fill(row, 0, ").append(width).append(", null);\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append(body)
+                .append("    }\n")
+                .append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(writerName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(code.toString());
+            }
+        } catch (IOException e) {
+            error(type, "Can't write " + writerName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method writes statements that fill columns of type from variable
+     *
+     * @return boolean - false if there are errors
+     */
+    private boolean extract(TypeElement type, String variable, StringBuilder code, Source source,
+                            Deque<TypeElement> path, String indent) {
+        boolean valid = true;
+        for (Member member : members(type)) {
+            String accessor = accessor(member.element, type, source.packageName);
+            if (accessor == null) {
+                valid = false;
+                continue;
+            }
+            if (member.column != null) {
+                code.append(indent).append("row[").append(source.headers.size()).append("] = ")
+                        .append(variable).append('.').append(accessor).append(";\n");
+                source.headers.add(member.column.value());
+                source.formats.add(member.column.format().isEmpty() ? null : member.column.format());
+                continue;
+            }
+            TypeMirror nestedType = valueType(member.element);
+            if (nestedType.getKind() != TypeKind.DECLARED) {
+                error(member.element, "Nested export value should be object");
+                valid = false;
+                continue;
+            }
+            TypeElement nested = (TypeElement) processingEnv.getTypeUtils().asElement(nestedType);
+            if (path.contains(nested)) {
+                error(member.element, "Nested export values are cyclic: " + nested.getQualifiedName());
+                valid = false;
+                continue;
+            }
+            String nestedVariable = "v" + source.variables++;
+            int column = source.headers.size();
+            StringBuilder nestedCode = new StringBuilder();
+            path.push(nested);
+            valid &= extract(nested, nestedVariable, nestedCode, source, path, indent + "    ");
+            path.pop();
+            int width = source.headers.size() - column;
+            if (width == 0) {
+                continue;
+            }
+            code.append(indent).append(typeName(nestedType)).append(' ').append(nestedVariable).append(" = ")
+                    .append(variable).append('.').append(accessor).append(";\n")
+                    .append(indent).append("if (").append(nestedVariable).append(" == null) {\n")
+                    .append(indent).append("    java.util.Arrays.fill(row, ").append(column).append(", ")
+                    .append(column + width).append(", null);\n")
+                    .append(indent).append("} else {\n")
+                    .append(nestedCode)
+                    .append(indent).append("}\n");
+        }
+        return valid;
+    }
+
+    /**
+     * Method collects export members of type, members of superclass go first
+     */
+    private List<Member> members(TypeElement type) {
+        List<Member> members = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            members.addAll(members((TypeElement) processingEnv.getTypeUtils().asElement(superclass)));
+        }
+        List<Member> own = new ArrayList<>();
+        for (Element element : type.getEnclosedElements()) {
+            ExportColumn column = element.getAnnotation(ExportColumn.class);
+            ExportNested nested = element.getAnnotation(ExportNested.class);
+            if (column != null && nested != null) {
+                error(element, "Member can't be both column and nested value");
+            } else if (column != null) {
+                own.add(new Member(element, column, column.order()));
+            } else if (nested != null) {
+                own.add(new Member(element, null, nested.order()));
+            }
+        }
+        // sort is stable, so declaration order is kept for equal orders
+        own.sort(Comparator.comparingInt(member -> member.order));
+        members.addAll(own);
+        return members;
+    }
+
+    /**
+     * Method builds expression that reads member
+     *
+     * @return String - field name or getter call, null if member can't be read
+     */
+    private String accessor(Element element, TypeElement owner, String packageName) {
+        if (element.getModifiers().contains(Modifier.STATIC)) {
+            error(element, "Export member should not be static");
+            return null;
+        }
+        if (element.getKind() == ElementKind.METHOD) {
+            ExecutableElement method = (ExecutableElement) element;
+            if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) {
+                error(element, "Export method should have no parameters and return value");
+                return null;
+            }
+            if (!isAccessible(method, packageName)) {
+                error(element, "Export method should be accessible from package " + packageName);
+                return null;
+            }
+            return method.getSimpleName() + "()";
+        }
+        if (isAccessible(element, packageName)) {
+            return element.getSimpleName().toString();
+        }
+        String name = element.getSimpleName().toString();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        String getter = (element.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get") + capitalized;
+        for (Element member : processingEnv.getElementUtils().getAllMembers(owner)) {
+            if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals(getter)
+                    && ((ExecutableElement) member).getParameters().isEmpty() && isAccessible(member, packageName)) {
+                return getter + "()";
+            }
+        }
+        if (hasGetterAnnotation(element) || hasGetterAnnotation(element.getEnclosingElement())) {
+            return getter + "()";
+        }
+        error(element, "Private export field should have getter " + getter + "()");
+        return null;
+    }
+
+    private TypeMirror valueType(Element element) {
+        return element.getKind() == ElementKind.METHOD ? ((ExecutableElement) element).getReturnType() : element.asType();
+    }
+
+    private boolean hasGetterAnnotation(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (GETTER_ANNOTATIONS.contains(annotation.getAnnotationType().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAccessible(Element element, String packageName) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        PackageElement elementPackage = processingEnv.getElementUtils().getPackageOf(element);
+        return elementPackage.getQualifiedName().contentEquals(packageName);
+    }
+
+    private boolean isVisible(TypeElement type) {
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            TypeElement currentType = (TypeElement) current;
+            if (currentType.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (currentType.getNestingKind() == NestingKind.LOCAL || currentType.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            if (currentType.getNestingKind() == NestingKind.MEMBER
+                    && currentType.getKind() == ElementKind.CLASS && !currentType.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String typeName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String list(List<String> values) {
+        if (values.isEmpty()) {
+            return "java.util.Collections.emptyList()";
+        }
+        StringBuilder list = new StringBuilder("java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                list.append(", ");
+            }
+            list.append(literal(values.get(i)));
+        }
+        return list.append("))").toString();
+    }
+
+    private static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Member {
+
+        private final Element element;
+
+        /**
+         * Column annotation, null for nested value
+         */
+        private final ExportColumn column;
+
+        private final int order;
+
+        private Member(Element element, ExportColumn column, int order) {
+            this.element = element;
+            this.column = column;
+            this.order = order;
+        }
+    }
+
+    /**
+     * State of generated source
+     */
+    private static final class Source {
+
+        private final String packageName;
+
+        private final List<String> headers = new ArrayList<>();
+
+        private final List<String> formats = new ArrayList<>();
+
+        private int variables;
+
+        private Source(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.softjourn.common.utils;
+
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+/**
+ * Converters of values into other classes, see {@link ReflectionUtil#tryToCastValue(Class, Object)}.
+ * Way of conversion depends only on classes of value and result, so it is resolved once per pair of classes
+ * into method handle of constructor, "valueOf" or "parse" method and then every conversion is a direct call.
+ * Pairs that can't be converted are cached too, so failed conversion doesn't repeat the lookup.
+ * Converters are resolved in the same order as by reflection: value of result class is returned as is,
+ * then constructor with parameter of value class, static "valueOf" of value class, static "parse" of string,
+ * constructor from string for integers and conversion of string form of value for other classes.
+ * Registry is not registered as bean by itself, {@link #getDefault()} is shared by static utilities.
+ */
+public final class ConverterRegistry {
+
+    private static final ConverterRegistry DEFAULT = new ConverterRegistry();
+
+    private static final MethodType CONVERTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodHandle TO_STRING;
+
+    static {
+        try {
+            TO_STRING = MethodHandles.publicLookup()
+                    .findStatic(Objects.class, "toString", MethodType.methodType(String.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Converters by result class and then by value class, entries are removed with their classes
+     */
+    private final ClassValue<ClassValue<Converter>> converters = new ClassValue<ClassValue<Converter>>() {
+        @Override
+        protected ClassValue<Converter> computeValue(Class<?> valueClass) {
+            return new ClassValue<Converter>() {
+                @Override
+                protected Converter computeValue(Class<?> sourceClass) {
+                    return resolve(sourceClass, valueClass);
+                }
+            };
+        }
+    };
+
+    /**
+     * @return registry shared by static utilities
+     */
+    public static ConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Method converts value into class
+     *
+     * @param valueClass - class that value needs to be converted to
+     * @param value      - value, not null
+     * @return converted value
+     * @throws IllegalArgumentException if value can't be converted into class
+     */
+    public Object convert(Class<?> valueClass, Object value) {
+        Converter converter = converters.get(valueClass).get(value.getClass());
+        if (converter.handle == null) {
+            throw new IllegalArgumentException("Can't create value of class " + valueClass.getName() + " from value " + value);
+        }
+        try {
+            return converter.handle.invokeExact(value);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Can't create value of class " + valueClass.getName() + " from value " + value, e);
+        }
+    }
+
+    /**
+     * @param sourceClass - class of value
+     * @param valueClass  - class that value needs to be converted to
+     * @return true if there is a way to convert values of source class, conversion of particular value can still fail
+     */
+    public boolean canConvert(Class<?> sourceClass, Class<?> valueClass) {
+        return converters.get(valueClass).get(sourceClass).handle != null;
+    }
+
+    private Converter resolve(Class<?> sourceClass, Class<?> valueClass) {
+        try {
+            MethodHandle handle = lookup(sourceClass, valueClass);
+            return handle == null ? Converter.NONE : new Converter(handle.asType(CONVERTER_TYPE));
+        } catch (IllegalAccessException | SecurityException e) {
+            // conversion by reflection fails on access too
+            return Converter.NONE;
+        }
+    }
+
+    private MethodHandle lookup(Class<?> sourceClass, Class<?> valueClass) throws IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (valueClass.isAssignableFrom(sourceClass)
+                || valueClass.isPrimitive() && ReflectionUtil.WRAPPERS.get(valueClass) == sourceClass) {
+            return MethodHandles.identity(Object.class);
+        }
+        for (Constructor<?> constructor : valueClass.getConstructors()) {
+            if (constructor.getParameterCount() == 1 && ClassUtils.isAssignable(constructor.getParameterTypes()[0], sourceClass)) {
+                return typed(lookup.unreflectConstructor(constructor), sourceClass);
+            }
+        }
+        Method valueOf = factoryMethod(valueClass, "valueOf", sourceClass);
+        if (valueOf != null) {
+            return typed(lookup.unreflect(valueOf), sourceClass);
+        }
+        Method parse = sourceClass == String.class ? factoryMethod(valueClass, "parse", String.class) : null;
+        if (parse != null) {
+            return typed(lookup.unreflect(parse), sourceClass);
+        }
+        if (sourceClass == Integer.class && Number.class.isAssignableFrom(valueClass)) {
+            try {
+                MethodHandle constructor = lookup.findConstructor(valueClass, MethodType.methodType(void.class, String.class));
+                return MethodHandles.filterArguments(constructor, 0, TO_STRING).asType(CONVERTER_TYPE);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        if (sourceClass != String.class) {
+            // value is converted by its string form
+            Converter converter = converters.get(valueClass).get(String.class);
+            return converter.handle == null ? null : MethodHandles.filterArguments(converter.handle, 0, TO_STRING.asType(CONVERTER_TYPE));
+        }
+        return null;
+    }
+
+    private static Method factoryMethod(Class<?> valueClass, String name, Class<?> argumentClass) {
+        for (Method method : valueClass.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == 1 && Modifier.isStatic(method.getModifiers())
+                    && method.getParameterTypes()[0].isAssignableFrom(argumentClass)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method adapts handle to value of source class, e.g. unboxes it for primitive parameter
+     */
+    private static MethodHandle typed(MethodHandle handle, Class<?> sourceClass) {
+        return handle.asType(handle.type().changeParameterType(0, sourceClass));
+    }
+
+    private static final class Converter {
+
+        private static final Converter NONE = new Converter(null);
+
+        /**
+         * Handle of (Object) Object type, null if values can't be converted
+         */
+        private final MethodHandle handle;
+
+        private Converter(MethodHandle handle) {
+            this.handle = handle;
+        }
+    }
+}
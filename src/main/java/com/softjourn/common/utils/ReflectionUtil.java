@@ -4,6 +4,8 @@ import org.springframework.util.ClassUtils;
 
 import javax.persistence.Id;
 import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +22,8 @@ public class ReflectionUtil {
         put(int.class, Integer.class);
         put(long.class, Long.class);
         put(boolean.class, Boolean.class);
+        put(float.class, Float.class);
+        put(double.class, Double.class);
     }});
 
     /**
@@ -50,14 +54,22 @@ public class ReflectionUtil {
      * and properly formatted strings,
      * Java8 date-time values from strings formatted in accordance with ISO 8601
      * In general any object that has appropriate constructor can be created
+     * Way of conversion is resolved once per pair of classes and cached, see {@link ConverterRegistry}
      *
      * @param valueClass class that value needs to be casted to
      * @param value value that needs to be casted
      * @return casted value
      * @throws IllegalArgumentException if value can't be casted ti required Class
      */
-    @SuppressWarnings("unchecked")
     public static Object tryToCastValue(Class valueClass, Object value) {
+        if (value == null) {
+            return castByReflection(valueClass, null);
+        }
+        return ConverterRegistry.getDefault().convert(valueClass, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object castByReflection(Class valueClass, Object value) {
         try {
             if (valueClass.isInstance(value) || isWrapperFor(valueClass, value)) {
                 return value;
@@ -78,6 +90,159 @@ public class ReflectionUtil {
         }
     }
 
+    /**
+     * Convert value to long without boxing
+     *
+     * Supports integral numbers, floating numbers with whole value and decimal strings,
+     * other values are converted by their string form
+     *
+     * @param value value that needs to be converted, can be null
+     * @param defaultValue value returned if value is null or can't be converted to long exactly
+     * @return converted value
+     */
+    public static long toLong(Object value, long defaultValue) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            // 2^63 is exact double, so range is checked exactly
+            return number == Math.rint(number) && number >= -0x1p63 && number < 0x1p63 ? (long) number : defaultValue;
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            try {
+                return value instanceof BigDecimal ? ((BigDecimal) value).longValueExact() : ((BigInteger) value).longValueExact();
+            } catch (ArithmeticException e) {
+                return defaultValue;
+            }
+        } else if (value == null) {
+            return defaultValue;
+        }
+        CharSequence string = value instanceof CharSequence ? (CharSequence) value : value.toString();
+        try {
+            return string.length() == 0 ? defaultValue : Long.parseLong(string, 0, string.length(), 10);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Convert value to int without boxing, see {@link #toLong(Object, long)}
+     *
+     * @param value value that needs to be converted, can be null
+     * @param defaultValue value returned if value is null or can't be converted to int exactly
+     * @return converted value
+     */
+    public static int toInt(Object value, int defaultValue) {
+        // Long.MIN_VALUE is out of int range, so it can stand for failed conversion
+        long number = toLong(value, Long.MIN_VALUE);
+        return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (int) number : defaultValue;
+    }
+
+    /**
+     * Convert value to double without boxing
+     *
+     * Supports numbers and decimal strings, other values are converted by their string form
+     *
+     * @param value value that needs to be converted, can be null
+     * @param defaultValue value returned if value is null or can't be converted to double
+     * @return converted value
+     */
+    public static double toDouble(Object value, double defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Convert value to boolean without boxing
+     *
+     * Strings "true" and "false" are accepted ignoring case, other values are converted by their string form
+     *
+     * @param value value that needs to be converted, can be null
+     * @param defaultValue value returned if value is null or neither "true" nor "false"
+     * @return converted value
+     */
+    public static boolean toBoolean(Object value, boolean defaultValue) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value == null) {
+            return defaultValue;
+        }
+        String string = value.toString();
+        if ("true".equalsIgnoreCase(string)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(string)) {
+            return false;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Convert values to array of longs, see {@link #toLong(Object, long)}
+     *
+     * @param values values that need to be converted, can contain nulls
+     * @param defaultValue value used for elements that can't be converted
+     * @return converted values
+     */
+    public static long[] toLongs(Object[] values, long defaultValue) {
+        long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = toLong(values[i], defaultValue);
+        }
+        return result;
+    }
+
+    /**
+     * Convert values to array of ints, see {@link #toInt(Object, int)}
+     *
+     * @param values values that need to be converted, can contain nulls
+     * @param defaultValue value used for elements that can't be converted
+     * @return converted values
+     */
+    public static int[] toInts(Object[] values, int defaultValue) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = toInt(values[i], defaultValue);
+        }
+        return result;
+    }
+
+    /**
+     * Convert values to array of doubles, see {@link #toDouble(Object, double)}
+     *
+     * @param values values that need to be converted, can contain nulls
+     * @param defaultValue value used for elements that can't be converted
+     * @return converted values
+     */
+    public static double[] toDoubles(Object[] values, double defaultValue) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = toDouble(values[i], defaultValue);
+        }
+        return result;
+    }
+
+    /**
+     * Convert values to array of booleans, see {@link #toBoolean(Object, boolean)}
+     *
+     * @param values values that need to be converted, can contain nulls
+     * @param defaultValue value used for elements that can't be converted
+     * @return converted values
+     */
+    public static boolean[] toBooleans(Object[] values, boolean defaultValue) {
+        boolean[] result = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = toBoolean(values[i], defaultValue);
+        }
+        return result;
+    }
+
     private static  <P> P getIdFieldProperty(Class entityClass, Function<Field, P> propertyMapper) {
         return Stream.of(entityClass.getDeclaredFields())
                 .filter(field -> field.isAnnotationPresent(Id.class))
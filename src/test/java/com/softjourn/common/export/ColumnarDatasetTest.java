@@ -0,0 +1,78 @@
+package com.softjourn.common.export;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarDatasetTest {
+
+    private final ExcelExport excelExport = new ExcelExport();
+
+    @Test
+    public void exportTest() {
+        ColumnarDataset dataset = ColumnarDataset.builder()
+                .dateColumn("Time", new long[]{Instant.parse("2017-04-28T17:30:30Z").toEpochMilli(), 0})
+                .longColumn("Requests", new long[]{Long.MAX_VALUE / 1024, -3})
+                .doubleColumn("Latency", "0.00", new double[]{1.5, Double.NaN})
+                .booleanColumn("Healthy", new boolean[]{true, false})
+                .objectColumn("Host", new Object[]{"node-1", null})
+                .build();
+
+        Workbook workbook = excelExport.export("metrics", dataset);
+
+        Sheet sheet = workbook.getSheet("metrics");
+        assertEquals("Latency", sheet.getRow(0).getCell(2).getStringCellValue());
+        assertEquals(LocalDateTime.of(2017, 4, 28, 17, 30, 30), sheet.getRow(1).getCell(0).getLocalDateTimeCellValue());
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0), sheet.getRow(2).getCell(0).getLocalDateTimeCellValue());
+        assertEquals(Long.MAX_VALUE / 1024, sheet.getRow(1).getCell(1).getNumericCellValue(), 1);
+        assertEquals(-3, sheet.getRow(2).getCell(1).getNumericCellValue(), 0);
+        assertEquals(1.5, sheet.getRow(1).getCell(2).getNumericCellValue(), 0);
+        assertEquals("0.00", sheet.getRow(1).getCell(2).getCellStyle().getDataFormatString());
+        assertEquals("", sheet.getRow(2).getCell(2).getStringCellValue());
+        assertTrue(sheet.getRow(1).getCell(3).getBooleanCellValue());
+        assertEquals("node-1", sheet.getRow(1).getCell(4).getStringCellValue());
+        assertEquals("", sheet.getRow(2).getCell(4).getStringCellValue());
+    }
+
+    @Test
+    public void exportStreamingTest() throws IOException {
+        long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        List<Long> chunks = new ArrayList<>();
+        ExportOptions options = new ExportOptions();
+        options.setRowsPerSheet(400);
+        options.setChunkSize(500);
+        options.setChunkListener(chunks::add);
+        options.setColumnWidth(ColumnWidth.estimated());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        excelExport.export("values", ColumnarDataset.builder().longColumn("Value", values).build(), options, out);
+
+        assertEquals(List.of(500L, 1000L), chunks);
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals(999, workbook.getSheet("values_3").getRow(200).getCell(0).getNumericCellValue(), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentLengthTest() {
+        ColumnarDataset.builder()
+                .longColumn("First", new long[2])
+                .intColumn("Second", new int[3]);
+    }
+}
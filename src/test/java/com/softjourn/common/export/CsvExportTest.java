@@ -0,0 +1,191 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvExportTest {
+
+    private CsvExport csvExport;
+
+    private List<ExportDefiner> definers;
+
+    private List<Payment> entities;
+
+    @Before
+    public void setUp() {
+        ExportDefiner payer = new ExportDefiner("payer", null);
+        payer.getDefiners().add(new ExportDefiner("name", "Payer"));
+
+        definers = new ArrayList<>();
+        definers.add(payer);
+        definers.add(new ExportDefiner("amount", "Amount"));
+        definers.add(new ExportDefiner("count", "Count"));
+        definers.add(new ExportDefiner("comment", "Comment"));
+        definers.add(new ExportDefiner("created", "Created"));
+
+        Payment first = new Payment();
+        first.setPayer(new Payer("John"));
+        first.setAmount(new BigDecimal("10.50"));
+        first.setCount(-42L);
+        first.setComment("said \"hi\", left");
+        first.setCreated(Instant.parse("2017-04-28T17:30:30Z"));
+
+        Payment second = new Payment();
+        second.setCount(0L);
+        second.setComment("multi\nline");
+
+        entities = Arrays.asList(first, second);
+
+        csvExport = new CsvExport();
+    }
+
+    @Test
+    public void exportTest() throws IOException, ReflectiveOperationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        csvExport.export("some", entities, definers, out);
+
+        assertEquals("Payer,Amount,Count,Comment,Created\r\n" +
+                        "John,10.50,-42,\"said \"\"hi\"\", left\",2017-04-28T17:30:30Z\r\n" +
+                        ",,0,\"multi\nline\",\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportTsvTest() throws IOException, ReflectiveOperationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new CsvExport(CsvExport.TAB, StandardCharsets.UTF_8).export("some", entities.stream(), definers, out);
+
+        assertEquals("Payer\tAmount\tCount\tComment\tCreated\r\n" +
+                        "John\t10.50\t-42\t\"said \"\"hi\"\", left\"\t2017-04-28T17:30:30Z\r\n" +
+                        "\t\t0\t\"multi\nline\"\t\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportSummaryTest() throws IOException, ReflectiveOperationException {
+        definers.get(1).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.COUNT));
+        definers.get(2).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.MIN, ExportAggregate.AVERAGE));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        csvExport.export("some", entities, definers, out);
+
+        assertEquals("Payer,Amount,Count,Comment,Created\r\n" +
+                        "John,10.50,-42,\"said \"\"hi\"\", left\",2017-04-28T17:30:30Z\r\n" +
+                        ",,0,\"multi\nline\",\r\n" +
+                        "Total,10.50,-42,,\r\n" +
+                        "Count,1,,,\r\n" +
+                        "Min,,-42,,\r\n" +
+                        "Average,,-21.0,,\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportExactSummaryTest() throws IOException, ReflectiveOperationException {
+        definers.get(1).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.MAX, ExportAggregate.AVERAGE));
+        definers.get(2).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.MIN, ExportAggregate.MAX));
+        Payment first = new Payment();
+        first.setAmount(new BigDecimal("0.10"));
+        first.setCount(Long.MAX_VALUE);
+        Payment second = new Payment();
+        second.setAmount(new BigDecimal("0.20"));
+        second.setCount(Long.MAX_VALUE - 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        csvExport.export("some", Arrays.asList(first, second), definers, out);
+
+        assertEquals("Payer,Amount,Count,Comment,Created\r\n" +
+                        ",0.10,9223372036854775807,,\r\n" +
+                        ",0.20,9223372036854775806,,\r\n" +
+                        "Total,0.30,18446744073709551613,,\r\n" +
+                        "Min,,9223372036854775806,,\r\n" +
+                        "Max,0.20,9223372036854775807,,\r\n" +
+                        "Average,0.15,,,\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportSqlDateAndDoubleTest() throws IOException, ReflectiveOperationException {
+        Booking booking = new Booking();
+        booking.setDay(new java.sql.Date(Instant.parse("2017-04-28T00:00:00Z").toEpochMilli()));
+        booking.setTime(new java.sql.Time(Instant.parse("1970-01-01T17:30:30Z").toEpochMilli()));
+        booking.setPrice(1.0E7);
+        booking.setRate(1.5E-5f);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        csvExport.export("some", Arrays.asList(booking), Arrays.asList(new ExportDefiner("day", "Day"),
+                new ExportDefiner("time", "Time"), new ExportDefiner("price", "Price"), new ExportDefiner("rate", "Rate")), out);
+
+        assertEquals("Day,Time,Price,Rate\r\n" +
+                        "2017-04-28T00:00:00Z,1970-01-01T17:30:30Z,10000000,0.000015\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportNoEntitiesTest() throws IOException, ReflectiveOperationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        csvExport.export("some", (List<Payment>) null, definers, out);
+
+        assertEquals("Payer,Amount,Count,Comment,Created\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeThroughSmallBufferTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(Channels.newChannel(out), ',', StandardCharsets.UTF_8, 3);
+
+        writer.writeValue("Привіт, 😀");
+        writer.writeValue(Long.MAX_VALUE);
+        writer.endRow();
+        writer.flush();
+
+        assertEquals("\"Привіт, 😀\"," + Long.MAX_VALUE + "\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Data
+    private static class Payment {
+
+        private Payer payer;
+
+        private BigDecimal amount;
+
+        private Long count;
+
+        private String comment;
+
+        private Instant created;
+    }
+
+    @Data
+    private static class Booking {
+
+        private java.sql.Date day;
+
+        private java.sql.Time time;
+
+        private Double price;
+
+        private Float rate;
+    }
+
+    @Data
+    private static class Payer {
+
+        private final String name;
+    }
+}
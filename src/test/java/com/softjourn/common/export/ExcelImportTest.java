@@ -0,0 +1,212 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExcelImportTest {
+
+    private final ExcelExport excelExport = new ExcelExport();
+
+    private final ExcelImport excelImport = new ExcelImport();
+
+    private List<ExportDefiner> definers;
+
+    @Before
+    public void setUp() {
+        definers = new ArrayList<>();
+        definers.add(new ExportDefiner("id", "Id"));
+        definers.add(new ExportDefiner("getName", "Name"));
+        definers.add(new ExportDefiner("amount", "Amount"));
+        definers.add(new ExportDefiner("active", "Active"));
+        definers.add(new ExportDefiner("day", "Day"));
+        definers.add(new ExportDefiner("created", "Created"));
+        ExportDefiner address = new ExportDefiner("address", null);
+        address.getDefiners().add(new ExportDefiner("city", "City"));
+        definers.add(address);
+        definers.add(new ExportDefiner("getLabel", "Label"));
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        List<Order> orders = orders(3);
+        orders.get(2).setName(null);
+        orders.get(2).setAddress(null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelExport.export("orders", orders, definers, out);
+
+        List<Order> imported;
+        try (Stream<Order> stream = excelImport.read(new ByteArrayInputStream(out.toByteArray()), "orders",
+                Order.class, definers)) {
+            imported = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(3, imported.size());
+        assertEquals(orders.get(0), imported.get(0));
+        assertEquals(orders.get(1), imported.get(1));
+        assertNull(imported.get(2).getName());
+        assertNull(imported.get(2).getAddress().getCity());
+        assertEquals(orders.get(2).getCreated(), imported.get(2).getCreated());
+    }
+
+    @Test
+    public void summaryRoundTripTest() throws Exception {
+        definers.get(0).setAggregates(Arrays.asList(ExportAggregate.COUNT));
+        definers.get(2).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.AVERAGE));
+        List<Order> orders = orders(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelExport.export("orders", orders, definers, out);
+
+        List<Order> imported;
+        try (Stream<Order> stream = excelImport.read(new ByteArrayInputStream(out.toByteArray()), "orders",
+                Order.class, definers)) {
+            imported = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(orders, imported);
+    }
+
+    @Test
+    public void summaryBatchesTest() throws Exception {
+        definers.get(2).setAggregates(Arrays.asList(ExportAggregate.SUM));
+        ExportOptions options = new ExportOptions();
+        options.setRowsPerSheet(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelExport.export("orders", orders(8), definers, options, out);
+        List<List<Order>> batches = new ArrayList<>();
+
+        long count = excelImport.read(new ByteArrayInputStream(out.toByteArray()), "orders", Order.class, definers,
+                3, batches::add);
+
+        assertEquals(8, count);
+        assertEquals(Long.valueOf(7), batches.get(2).get(1).getId());
+    }
+
+    @Test
+    public void batchesTest() throws Exception {
+        ExportOptions options = new ExportOptions();
+        options.setRowsPerSheet(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        excelExport.export("orders", orders(10), definers, options, out);
+        List<List<Order>> batches = new ArrayList<>();
+
+        long count = excelImport.read(new ByteArrayInputStream(out.toByteArray()), "orders", Order.class, definers,
+                3, batches::add);
+
+        assertEquals(10, count);
+        assertEquals(4, batches.size());
+        assertEquals(1, batches.get(3).size());
+        assertEquals(Long.valueOf(9), batches.get(3).get(0).getId());
+    }
+
+    @Test
+    public void sharedStringsTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("edited");
+            sheet.createRow(0).createCell(0).setCellValue("Orders");
+            Row header = sheet.createRow(1);
+            header.createCell(0).setCellValue("Name");
+            header.createCell(2).setCellValue("Id");
+            header.createCell(3).setCellValue("Active");
+            Row row = sheet.createRow(2);
+            row.createCell(0).setCellValue("typed by user");
+            row.createCell(2).setCellValue("42");
+            row.createCell(3).setCellValue(true);
+            sheet.createRow(3);
+            workbook.write(out);
+        }
+
+        List<Order> imported;
+        try (Stream<Order> stream = excelImport.read(new ByteArrayInputStream(out.toByteArray()), null,
+                Order.class, definers)) {
+            imported = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(1, imported.size());
+        assertEquals("typed by user", imported.get(0).getName());
+        assertEquals(Long.valueOf(42), imported.get(0).getId());
+        assertTrue(imported.get(0).isActive());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongValueTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("edited");
+            sheet.createRow(0).createCell(0).setCellValue("Id");
+            sheet.createRow(1).createCell(0).setCellValue("not a number");
+            workbook.write(out);
+        }
+
+        try (Stream<Order> stream = excelImport.read(new ByteArrayInputStream(out.toByteArray()), "edited",
+                Order.class, definers)) {
+            assertFalse(stream.findFirst().isPresent());
+        }
+    }
+
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setId((long) i);
+            order.setName("order " + i);
+            order.setAmount(new BigDecimal("10.25").add(BigDecimal.valueOf(i)));
+            order.setActive(i % 2 == 0);
+            order.setDay(LocalDate.of(2020, 1, 1).plusDays(i));
+            order.setCreated(Instant.parse("2020-01-01T10:15:30Z").plusSeconds(i));
+            Address address = new Address();
+            address.setCity("city " + i);
+            order.setAddress(address);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    @Data
+    public static class Order {
+
+        private Long id;
+
+        private String name;
+
+        private BigDecimal amount;
+
+        private boolean active;
+
+        private LocalDate day;
+
+        private Instant created;
+
+        private Address address;
+
+        public String getLabel() {
+            return id + ": " + name;
+        }
+    }
+
+    @Data
+    public static class Address {
+
+        private String city;
+    }
+}
@@ -0,0 +1,194 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExportCacheTest {
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private final List<Item> items = Arrays.asList(new Item(1), new Item(2), new Item(3));
+
+    private final Supplier<List<Item>> entities = () -> {
+        renders.incrementAndGet();
+        return items;
+    };
+
+    private List<ExportDefiner> definers;
+
+    private TestClock clock;
+
+    private ExportCache exportCache;
+
+    @Before
+    public void setUp() {
+        definers = new ArrayList<>();
+        definers.add(new ExportDefiner("number", "Number"));
+        clock = new TestClock();
+        exportCache = new ExportCache(new CsvExport(), 1024, Duration.ofMinutes(1), null, clock);
+    }
+
+    @After
+    public void tearDown() {
+        exportCache.clear();
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        String etag = exportCache.export("some", "1", definers, entities, first);
+        String cachedEtag = exportCache.export("some", "1", definers, entities, second);
+
+        assertEquals(1, renders.get());
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        assertEquals("Number\r\n1\r\n2\r\n3\r\n", first.toString("UTF-8"));
+        assertEquals(etag, cachedEtag);
+        assertEquals(etag, exportCache.getETag("some", "1", definers));
+        assertEquals(first.size(), exportCache.getSize());
+        assertTrue(ExportCache.matches("\"other\", W/" + etag, etag));
+        assertFalse(ExportCache.matches(null, etag));
+    }
+
+    @Test
+    public void fingerprintTest() {
+        String fingerprint = exportCache.fingerprint("some", "1", definers);
+        List<ExportDefiner> formatted = new ArrayList<>();
+        formatted.add(new ExportDefiner("number", "Number"));
+        formatted.get(0).setFormat("0.00");
+
+        assertEquals(fingerprint, exportCache.fingerprint("some", "1", copy(definers)));
+        assertNotEquals(fingerprint, exportCache.fingerprint("some", "2", definers));
+        assertNotEquals(fingerprint, exportCache.fingerprint("some", "1", formatted));
+        assertNotEquals(exportCache.fingerprint("ab", "c", definers), exportCache.fingerprint("a", "bc", definers));
+    }
+
+    @Test
+    public void aggregatesTest() throws Exception {
+        List<ExportDefiner> summed = copy(definers);
+        summed.get(0).setAggregates(Arrays.asList(ExportAggregate.SUM));
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        ByteArrayOutputStream total = new ByteArrayOutputStream();
+
+        String etag = exportCache.export("some", "1", definers, entities, plain);
+        String summedEtag = exportCache.export("some", "1", summed, entities, total);
+
+        assertNotEquals(etag, summedEtag);
+        assertEquals(2, renders.get());
+        assertEquals("Number\r\n1\r\n2\r\n3\r\n", plain.toString("UTF-8"));
+        assertEquals("Number\r\n1\r\n2\r\n3\r\n6\r\n", total.toString("UTF-8"));
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+        exportCache = new ExportCache(new CsvExport(), 40, Duration.ofMinutes(1), null, clock);
+
+        exportCache.export("first", "1", definers, entities, new ByteArrayOutputStream());
+        exportCache.export("second", "1", definers, entities, new ByteArrayOutputStream());
+        exportCache.export("third", "1", definers, entities, new ByteArrayOutputStream());
+        assertEquals(3, renders.get());
+        assertEquals(2, exportCache.getCount());
+
+        exportCache.export("third", "1", definers, entities, new ByteArrayOutputStream());
+        assertEquals(3, renders.get());
+
+        clock.advance(Duration.ofMinutes(1));
+        exportCache.export("third", "1", definers, entities, new ByteArrayOutputStream());
+        assertEquals(4, renders.get());
+        assertEquals(1, exportCache.getCount());
+    }
+
+    @Test
+    public void concurrentRenderTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<Item>> blocked = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return entities.get();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            ByteArrayOutputStream second = new ByteArrayOutputStream();
+            Future<String> rendering = executor.submit(() -> exportCache.export("some", "1", definers, blocked, first));
+            started.await();
+            Future<String> waiting = executor.submit(() -> exportCache.export("some", "1", definers, blocked, second));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(rendering.get(), waiting.get());
+            assertEquals(1, renders.get());
+            assertArrayEquals(first.toByteArray(), second.toByteArray());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<ExportDefiner> copy(List<ExportDefiner> definers) {
+        List<ExportDefiner> copy = new ArrayList<>();
+        for (ExportDefiner definer : definers) {
+            copy.add(new ExportDefiner(definer.getName(), definer.getHeader()));
+        }
+        return copy;
+    }
+
+    private static class TestClock extends Clock {
+
+        private Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Data
+    private static class Item {
+
+        private final Integer number;
+    }
+}
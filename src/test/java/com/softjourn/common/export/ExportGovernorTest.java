@@ -0,0 +1,150 @@
+package com.softjourn.common.export;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExportGovernorTest {
+
+    @Test
+    public void budgetTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(100_000, 10, ExportGovernor.Policy.DOWNGRADE, Duration.ZERO);
+
+        try (ExportGovernor.Permit first = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK);
+             ExportGovernor.Permit second = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK)) {
+            assertEquals(ExportGovernor.Mode.WORKBOOK, first.getMode());
+            assertEquals(50_000, first.getBytes());
+            assertEquals(ExportGovernor.Mode.WORKBOOK, second.getMode());
+            assertRejected(governor, ExportGovernor.Mode.CSV);
+        }
+        try (ExportGovernor.Permit large = governor.acquire(5000, 5, ExportGovernor.Mode.WORKBOOK)) {
+            assertEquals(ExportGovernor.Mode.WORKBOOK, large.getMode());
+            assertEquals(100_000, large.getBytes());
+            assertRejected(governor, ExportGovernor.Mode.CSV);
+        }
+
+        assertEquals(0, governor.getUsedBytes());
+        assertEquals(0, governor.getInFlight());
+        assertEquals(3, governor.getAdmitted());
+        assertEquals(2, governor.getRejected());
+    }
+
+    @Test
+    public void streamingDowngradeTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(60_000, 10, ExportGovernor.Policy.DOWNGRADE, Duration.ZERO);
+
+        try (ExportGovernor.Permit workbook = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK);
+             ExportGovernor.Permit streaming = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK)) {
+            assertEquals(ExportGovernor.Mode.WORKBOOK, workbook.getMode());
+            assertEquals(ExportGovernor.Mode.STREAMING, streaming.getMode());
+            assertEquals(5_000, streaming.getBytes());
+            assertEquals(55_000, governor.getUsedBytes());
+            assertEquals(1, governor.getDowngraded());
+        }
+    }
+
+    @Test
+    public void windowTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(400_000, 10, ExportGovernor.Policy.DOWNGRADE, Duration.ZERO);
+        ExportOptions options = new ExportOptions();
+        options.setRowAccessWindowSize(10_000);
+
+        assertEquals(5_000, governor.estimate(100_000, 5, ExportGovernor.Mode.STREAMING));
+        assertEquals(500_000, governor.estimate(100_000, 5, ExportGovernor.Mode.STREAMING, 10_000));
+        try (ExportGovernor.Permit permit = governor.acquire(100_000,
+                Collections.singletonList(new ExportDefiner("number", "Number")), ExportGovernor.Mode.STREAMING, options)) {
+            assertEquals(100_000, permit.getBytes());
+            // export that has to write workbook can't be downgraded to CSV, so it doesn't fit
+            try {
+                governor.acquire(100_000, 5, 10_000, ExportGovernor.Mode.STREAMING, ExportGovernor.Mode.STREAMING);
+                throw new AssertionError("Export is not rejected");
+            } catch (RejectedExecutionException e) {
+                assertEquals(ExportGovernor.Mode.CSV, governor.acquire(100_000, 5, 10_000, ExportGovernor.Mode.STREAMING,
+                        ExportGovernor.Mode.CSV).getMode());
+            }
+        }
+    }
+
+    @Test
+    public void overflowTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(100_000, 10, ExportGovernor.Policy.DOWNGRADE, Duration.ZERO);
+
+        assertEquals(Long.MAX_VALUE, governor.estimate(Long.MAX_VALUE, 5, ExportGovernor.Mode.WORKBOOK));
+        assertEquals(Long.MAX_VALUE, governor.estimate(Long.MAX_VALUE / 2, Integer.MAX_VALUE, ExportGovernor.Mode.WORKBOOK));
+        // export of unknown size takes the whole budget instead of wrapping to negative estimate
+        try (ExportGovernor.Permit permit = governor.acquire(Long.MAX_VALUE, 5, ExportGovernor.Mode.WORKBOOK)) {
+            assertEquals(100_000, permit.getBytes());
+            assertEquals(100_000, governor.getUsedBytes());
+            assertRejected(governor, ExportGovernor.Mode.CSV);
+        }
+        assertEquals(0, governor.getUsedBytes());
+    }
+
+    @Test
+    public void unlimitedWindowTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(100_000, 10, ExportGovernor.Policy.REJECT, Duration.ZERO);
+
+        assertEquals(5_000_000, governor.estimate(100_000, 5, ExportGovernor.Mode.STREAMING, -1));
+        assertEquals(Long.MAX_VALUE, governor.estimate(Long.MAX_VALUE, 5, ExportGovernor.Mode.STREAMING, -1));
+        try (ExportGovernor.Permit permit = governor.acquire(100_000, 5, -1, ExportGovernor.Mode.STREAMING,
+                ExportGovernor.Mode.STREAMING)) {
+            assertEquals(100_000, permit.getBytes());
+            assertRejected(governor, ExportGovernor.Mode.CSV);
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectTest() throws InterruptedException {
+        ExportGovernor governor = new ExportGovernor(60_000, 10, ExportGovernor.Policy.REJECT, Duration.ofMinutes(1));
+
+        try (ExportGovernor.Permit ignored = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK)) {
+            governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK);
+        }
+    }
+
+    @Test
+    public void queueTest() throws Exception {
+        ExportGovernor governor = new ExportGovernor(60_000, 10, ExportGovernor.Policy.QUEUE, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ExportGovernor.Permit> queued;
+            try (ExportGovernor.Permit ignored = governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK)) {
+                queued = executor.submit(() -> governor.acquire(1000, 5, ExportGovernor.Mode.WORKBOOK));
+                while (governor.getWaiting() == 0) {
+                    Thread.sleep(10);
+                }
+                Thread.sleep(50);
+                assertFalse(queued.isDone());
+                assertEquals(1, governor.getInFlight());
+            }
+            ExportGovernor.Permit permit = queued.get();
+
+            assertEquals(ExportGovernor.Mode.WORKBOOK, permit.getMode());
+            assertTrue(permit.getWaitTime().toMillis() >= 50);
+            assertEquals(permit.getWaitTime(), governor.getMaxWait());
+            assertEquals(0, governor.getWaiting());
+            permit.close();
+            assertEquals(0, governor.getUsedBytes());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertRejected(ExportGovernor governor, ExportGovernor.Mode mode) throws InterruptedException {
+        try {
+            governor.acquire(1000, 5, mode).close();
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        throw new AssertionError("Export is not rejected");
+    }
+}
@@ -0,0 +1,134 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExportJobServiceTest {
+
+    private ExportJobService exportJobService;
+
+    private List<ExportDefiner> definers;
+
+    @Before
+    public void setUp() {
+        definers = new ArrayList<>();
+        definers.add(new ExportDefiner("number", "Number"));
+        exportJobService = new ExportJobService(new ExcelExport(), 1, 1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        exportJobService.shutdown();
+    }
+
+    @Test
+    public void submitTest() throws Exception {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            items.add(new Item(i));
+        }
+        ExportOptions options = new ExportOptions();
+        options.setChunkSize(10);
+
+        ExportJob job = exportJobService.submit("some", items, definers, options);
+        Path file = job.getResult().get();
+
+        assertEquals(25, job.getRowsWritten());
+        assertTrue(exportJobService.getJob(job.getId()).isPresent());
+        try (InputStream in = Files.newInputStream(file); Workbook workbook = new XSSFWorkbook(in)) {
+            assertEquals(25, workbook.getSheet("some").getLastRowNum());
+            assertEquals(24, workbook.getSheet("some").getRow(25).getCell(0).getNumericCellValue(), 0);
+        }
+
+        exportJobService.remove(job.getId());
+
+        assertFalse(Files.exists(file));
+        assertFalse(exportJobService.getJob(job.getId()).isPresent());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        ExportOptions options = new ExportOptions();
+        options.setChunkSize(10);
+        options.setChunkListener(rows -> started.countDown());
+
+        ExportJob job = exportJobService.submit("some", () -> Stream.iterate(0, i -> i + 1).map(Item::new),
+                definers, options);
+        started.await();
+
+        assertTrue(job.cancel());
+        job.getResult().join();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Stream<Item> blocked = Stream.of(1).peek(i -> awaitQuietly(release)).map(Item::new);
+            exportJobService.submit("running", () -> blocked, definers, new ExportOptions());
+            exportJobService.submit("queued", Collections.emptyList(), definers, new ExportOptions());
+            exportJobService.submit("rejected", Collections.emptyList(), definers, new ExportOptions());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void governorTest() throws Exception {
+        ExportGovernor governor = new ExportGovernor(1000, 10, ExportGovernor.Policy.REJECT, Duration.ZERO);
+        exportJobService.shutdown();
+        exportJobService = new ExportJobService(new ExcelExport(), 1, 1, null, governor);
+        List<Item> items = Collections.singletonList(new Item(1));
+
+        try (ExportGovernor.Permit ignored = governor.acquire(1, 100, ExportGovernor.Mode.WORKBOOK)) {
+            ExportJob job = exportJobService.submit("rejected", items, definers, new ExportOptions());
+            try {
+                job.getResult().join();
+                throw new AssertionError("Job is not rejected");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+        ExportJob job = exportJobService.submit("admitted", items, definers, new ExportOptions());
+
+        assertTrue(Files.exists(job.getResult().get()));
+        assertEquals(2, governor.getAdmitted());
+        assertEquals(0, governor.getUsedBytes());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Data
+    private static class Item {
+
+        private final Integer number;
+    }
+}
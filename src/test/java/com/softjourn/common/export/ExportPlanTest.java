@@ -0,0 +1,152 @@
+package com.softjourn.common.export;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ExportPlanTest {
+
+    @Test
+    public void headersTest() {
+        ExportDefiner owner = new ExportDefiner("owner", null);
+        owner.getDefiners().add(new ExportDefiner("name", "Owner"));
+        owner.getDefiners().add(new ExportDefiner("code", "Code"));
+
+        ExportPlan plan = ExportPlan.of(Arrays.asList(new ExportDefiner("name", "Name"), owner));
+
+        assertEquals(3, plan.getColumnCount());
+        assertEquals(Arrays.asList("Name", "Owner", "Code"), plan.getHeaders());
+    }
+
+    @Test
+    public void extractInheritedTest() throws ReflectiveOperationException {
+        ExportPlan plan = ExportPlan.of(Arrays.asList(
+                new ExportDefiner("name", "Name"),
+                new ExportDefiner("getCode", "Code"),
+                new ExportDefiner("label", "Label", new Class[]{String.class}, "#")));
+
+        Object[] row = new Object[plan.getColumnCount()];
+        plan.extract(new Child("child", 7), row);
+
+        assertArrayEquals(new Object[]{"child", 7, "#child"}, row);
+    }
+
+    @Test
+    public void extractNullNestedTest() throws ReflectiveOperationException {
+        ExportDefiner parent = new ExportDefiner("parent", null);
+        parent.getDefiners().add(new ExportDefiner("name", "Parent"));
+        parent.getDefiners().add(new ExportDefiner("getCode", "Parent code"));
+
+        ExportPlan plan = ExportPlan.of(Arrays.asList(parent, new ExportDefiner("name", "Name")));
+
+        Object[] row = new Object[plan.getColumnCount()];
+        Child child = new Child("child", 1);
+        child.parent = new Child("parent", 2);
+        plan.extract(child, row);
+        assertArrayEquals(new Object[]{"parent", 2, "child"}, row);
+
+        plan.extract(new Child("orphan", 3), row);
+        assertArrayEquals(new Object[]{null, null, "orphan"}, row);
+    }
+
+    @Test
+    public void extractDotPathTest() throws ReflectiveOperationException {
+        ExportDefiner parent = new ExportDefiner("getParent", null);
+        parent.getDefiners().add(new ExportDefiner("getCode", "Parent code"));
+
+        ExportPlan plan = ExportPlan.of(Arrays.asList(
+                new ExportDefiner("getParent.name", "Parent"),
+                new ExportDefiner("name", "Name"),
+                new ExportDefiner("getParent.getParent.name", "Grandparent"),
+                parent));
+
+        Object[] row = new Object[plan.getColumnCount()];
+        Child child = new Child("child", 1);
+        child.parent = new Child("parent", 2);
+        child.parent.parent = new Child("grandparent", 3);
+        plan.extract(child, row);
+        assertArrayEquals(new Object[]{"parent", "child", "grandparent", 2}, row);
+        assertEquals(1, child.parentCalls);
+        assertEquals(1, child.parent.parentCalls);
+
+        child.parent = null;
+        plan.extract(child, row);
+        assertArrayEquals(new Object[]{null, "child", null, null}, row);
+        assertEquals(2, child.parentCalls);
+    }
+
+    @Test(expected = ReflectiveOperationException.class)
+    public void extractUnknownTest() throws ReflectiveOperationException {
+        ExportPlan plan = ExportPlan.of(Arrays.asList(new ExportDefiner("unknown", "Unknown")));
+
+        plan.extract(new Child("child", 1), new Object[1]);
+    }
+
+    @Test
+    public void ofChangedDefinersTest() throws ReflectiveOperationException {
+        List<ExportDefiner> definers = new ArrayList<>(Arrays.asList(new ExportDefiner("name", "Name")));
+        ExportPlan plan = ExportPlan.of(definers);
+        definers.set(0, new ExportDefiner("name", "Title"));
+        definers.add(new ExportDefiner("code", "Code"));
+
+        ExportPlan changed = ExportPlan.of(definers);
+        Object[] row = new Object[2];
+        changed.extract(new Child("child", 1), row);
+
+        assertEquals(Arrays.asList("Name"), plan.getHeaders());
+        assertEquals(Arrays.asList("Title", "Code"), changed.getHeaders());
+        assertArrayEquals(new Object[]{"child", 1}, row);
+    }
+
+    @Test(expected = StackOverflowError.class)
+    public void extractErrorTest() throws ReflectiveOperationException {
+        ExportPlan plan = ExportPlan.of(Arrays.asList(new ExportDefiner("getDeep", "Deep")));
+
+        plan.extract(new Child("child", 1), new Object[1]);
+    }
+
+    private static class Base {
+
+        private final String name;
+
+        private final int code;
+
+        Base(String name, int code) {
+            this.name = name;
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        String label(String prefix) {
+            return prefix + name;
+        }
+    }
+
+    private static class Child extends Base {
+
+        private Child parent;
+
+        private int parentCalls;
+
+        Child(String name, int code) {
+            super(name, code);
+        }
+
+        public Child getParent() {
+            parentCalls++;
+            return parent;
+        }
+
+        public Child getDeep() {
+            throw new StackOverflowError();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.softjourn.common.export;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.Test;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.Query;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExportQueryTest {
+
+    @Test
+    public void jpqlTest() {
+        ExportDefiner customer = new ExportDefiner("customer", null);
+        customer.getDefiners().add(new ExportDefiner("getName", "Customer"));
+        customer.getDefiners().add(new ExportDefiner("address.city", "City"));
+        List<ExportDefiner> definers = Arrays.asList(
+                new ExportDefiner("id", "Id"),
+                customer,
+                new ExportDefiner("customer.address.zip", "Zip"),
+                new ExportDefiner("amount", "Amount"));
+
+        ExportQuery query = ExportQuery.of(Order.class, definers)
+                .where("e.amount > :amount", Collections.singletonMap("amount", BigDecimal.ONE));
+
+        assertEquals("SELECT e.id, j1.name, j1.address.city, j1.address.zip, e.amount FROM orders e"
+                + " LEFT JOIN e.customer j1 WHERE e.amount > :amount", query.getJpql());
+        assertEquals(Arrays.asList("Id", "Customer", "City", "Zip", "Amount"), query.getRowWriter().getHeaders());
+    }
+
+    @Test
+    public void skipDefinersWithoutHeadersTest() {
+        ExportDefiner customer = new ExportDefiner("customer", null);
+        customer.getDefiners().add(new ExportDefiner("name", null));
+        List<ExportDefiner> definers = Arrays.asList(
+                new ExportDefiner("id", "Id"),
+                new ExportDefiner("customer", null),
+                customer,
+                new ExportDefiner("customer.address.city", null));
+
+        assertEquals("SELECT e.id FROM orders e", ExportQuery.of(Order.class, definers).getJpql());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPropertyTest() {
+        ExportQuery.of(Order.class, Collections.singletonList(new ExportDefiner("customer.phone", "Phone")));
+    }
+
+    @Test
+    public void iterateTest() throws ReflectiveOperationException {
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class);
+        when(entityManager.createQuery(anyString())).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        List<Object[]> page = new ArrayList<>();
+        page.add(new Object[]{1L, "first", 1L});
+        page.add(new Object[]{2L, "second", 2L});
+        when(query.getResultList()).thenReturn(page, Collections.singletonList(new Object[]{3L, "third", 3L}));
+        ExportQuery exportQuery = ExportQuery.of(Order.class,
+                Arrays.asList(new ExportDefiner("id", "Id"), new ExportDefiner("customer.name", "Customer")));
+
+        Iterator<Object[]> rows = exportQuery.iterate(entityManager, 2);
+        Object[] row = new Object[2];
+        List<Object> customers = new ArrayList<>();
+        while (rows.hasNext()) {
+            exportQuery.getRowWriter().extract(rows.next(), row);
+            customers.add(row[1]);
+        }
+
+        assertEquals(Arrays.asList("first", "second", "third"), customers);
+        assertFalse(rows.hasNext());
+        assertArrayEquals(new Object[]{3L, "third"}, row);
+        verify(entityManager).createQuery("SELECT e.id, j1.name, e.id FROM orders e LEFT JOIN e.customer j1"
+                + " ORDER BY e.id");
+        verify(entityManager).createQuery("SELECT e.id, j1.name, e.id FROM orders e LEFT JOIN e.customer j1"
+                + " WHERE e.id > :exportLastId ORDER BY e.id");
+        verify(query).setParameter("exportLastId", 2L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void iterateEmptyPageTest() {
+        ExportQuery.of(Order.class, Collections.singletonList(new ExportDefiner("id", "Id")))
+                .iterate(mock(EntityManager.class), 0);
+    }
+
+    @Test
+    public void hibernateTest() throws ReflectiveOperationException {
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(Order.class)
+                .addAnnotatedClass(Customer.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:export_query")
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        try (SessionFactory sessionFactory = configuration.buildSessionFactory();
+             Session session = sessionFactory.openSession()) {
+            session.getTransaction().begin();
+            for (long id = 1; id <= 5; id++) {
+                Customer customer = new Customer();
+                customer.id = id;
+                customer.name = "customer " + id;
+                customer.address = new Address();
+                customer.address.city = "city " + id;
+                session.persist(customer);
+                Order order = new Order();
+                order.id = id;
+                order.amount = BigDecimal.valueOf(id);
+                order.customer = customer;
+                session.persist(order);
+            }
+            session.flush();
+            ExportDefiner customer = new ExportDefiner("customer", null);
+            customer.getDefiners().add(new ExportDefiner("getName", "Customer"));
+            customer.getDefiners().add(new ExportDefiner("address.city", "City"));
+            ExportQuery query = ExportQuery.of(Order.class, Arrays.asList(new ExportDefiner("id", "Id"), customer))
+                    .where("e.amount > :amount", Collections.singletonMap("amount", BigDecimal.ONE));
+
+            List<String> cities = new ArrayList<>();
+            Object[] row = new Object[3];
+            for (Iterator<Object[]> rows = query.iterate(session, 2); rows.hasNext(); ) {
+                query.getRowWriter().extract(rows.next(), row);
+                cities.add(row[0] + " " + row[1] + " " + row[2]);
+            }
+
+            assertEquals(Arrays.asList("2 customer 2 city 2", "3 customer 3 city 3", "4 customer 4 city 4",
+                    "5 customer 5 city 5"), cities);
+            session.getTransaction().rollback();
+        }
+    }
+
+    @Entity(name = "orders")
+    private static class Order {
+
+        @Id
+        private Long id;
+
+        private BigDecimal amount;
+
+        @ManyToOne
+        private Customer customer;
+    }
+
+    @Entity
+    private static class Customer {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        @Embedded
+        private Address address;
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Embeddable
+    private static class Address {
+
+        private String city;
+
+        private String zip;
+    }
+}
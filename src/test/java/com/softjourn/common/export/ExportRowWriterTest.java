@@ -0,0 +1,121 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExportRowWriterTest {
+
+    @Test
+    public void generatedWriterTest() {
+        ExportRowWriter<Order> writer = ExportRowWriters.of(Order.class);
+
+        assertTrue(writer instanceof ExportRowWriterTest_OrderExportRowWriter);
+        assertEquals(Arrays.asList("Id", "Customer", "City", "Total", "Paid"), writer.getHeaders());
+        assertEquals(Arrays.asList(null, null, null, "0.00", null), writer.getFormats());
+    }
+
+    @Test
+    public void extractTest() throws ReflectiveOperationException {
+        ExportRowWriter<Order> writer = ExportRowWriters.of(Order.class);
+        Order order = new Order(7L);
+        order.setCustomer(new Customer("John", new Address("Lviv")));
+        order.setTotal(new BigDecimal("10.50"));
+        Object[] row = new Object[writer.getColumnCount()];
+
+        writer.extract(order, row);
+
+        assertArrayEquals(new Object[]{7L, "John", "Lviv", new BigDecimal("10.50"), false}, row);
+
+        order.setCustomer(null);
+        writer.extract(order, row);
+
+        assertArrayEquals(new Object[]{7L, null, null, new BigDecimal("10.50"), false}, row);
+    }
+
+    @Test
+    public void exportTest() throws ReflectiveOperationException {
+        Order order = new Order(1L);
+        order.setCustomer(new Customer("John", null));
+        order.setPaid(true);
+
+        Workbook workbook = new ExcelExport().export("orders", Collections.singletonList(order), ExportRowWriters.of(Order.class));
+
+        Sheet sheet = workbook.getSheet("orders");
+        assertEquals("City", sheet.getRow(0).getCell(2).getStringCellValue());
+        assertEquals(1, sheet.getRow(1).getCell(0).getNumericCellValue(), 0);
+        assertEquals("John", sheet.getRow(1).getCell(1).getStringCellValue());
+        assertEquals("", sheet.getRow(1).getCell(2).getStringCellValue());
+        assertTrue(sheet.getRow(1).getCell(4).getBooleanCellValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingWriterTest() {
+        ExportRowWriters.of(String.class);
+    }
+
+    static class Entity {
+
+        @ExportColumn("Id")
+        final Long id;
+
+        Entity(Long id) {
+            this.id = id;
+        }
+    }
+
+    @Data
+    static class Order extends Entity {
+
+        @ExportColumn(value = "Paid", order = 2)
+        private boolean paid;
+
+        @ExportColumn(value = "Total", order = 1, format = "0.00")
+        private BigDecimal total;
+
+        @ExportNested
+        private Customer customer;
+
+        Order(Long id) {
+            super(id);
+        }
+    }
+
+    static class Customer {
+
+        private final String name;
+
+        private final Address address;
+
+        Customer(String name, Address address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        @ExportColumn("Customer")
+        public String getName() {
+            return name;
+        }
+
+        @ExportNested
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+    @Data
+    static class Address {
+
+        @ExportColumn("City")
+        private final String city;
+    }
+}
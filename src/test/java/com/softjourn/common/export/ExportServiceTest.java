@@ -2,20 +2,45 @@ package com.softjourn.common.export;
 
 import lombok.Data;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ExportServiceTest {
@@ -108,7 +133,8 @@ public class ExportServiceTest {
         assertEquals("full name", workbook.getSheetAt(0).getRow(1).getCell(0).getStringCellValue());
         assertEquals(100, workbook.getSheetAt(0).getRow(1).getCell(1).getNumericCellValue(), 0);
         assertEquals("comment", workbook.getSheetAt(0).getRow(1).getCell(2).getStringCellValue());
-        assertEquals("Fri, 28 Apr 2017 17:30:30 GMT", workbook.getSheetAt(0).getRow(1).getCell(3).getStringCellValue());
+        assertEquals(LocalDateTime.of(2017, 4, 28, 17, 30, 30), workbook.getSheetAt(0).getRow(1).getCell(3).getLocalDateTimeCellValue());
+        assertEquals(ExcelExport.DATE_TIME_FORMAT, workbook.getSheetAt(0).getRow(1).getCell(3).getCellStyle().getDataFormatString());
         assertEquals("full name", workbook.getSheetAt(0).getRow(1).getCell(4).getStringCellValue());
         assertEquals("error", workbook.getSheetAt(0).getRow(1).getCell(5).getStringCellValue());
         assertEquals("SUCCESS", workbook.getSheetAt(0).getRow(1).getCell(6).getStringCellValue());
@@ -148,6 +174,418 @@ public class ExportServiceTest {
         assertEquals(headersCount, workbook.getSheetAt(0).getRow(0).getLastCellNum());
     }
 
+    @Test
+    public void exportStreamingTest() throws ReflectiveOperationException, IOException {
+        List<Object> manyEntities = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            manyEntities.add(entities.get(0));
+        }
+
+        SXSSFWorkbook workbook = excelExport.exportStreaming("some", manyEntities, definers, 10);
+
+        // rows out of window are already flushed to disk
+        assertNull(workbook.getSheetAt(0).getRow(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.dispose();
+
+        try (Workbook written = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("some", written.getSheetName(0));
+            assertEquals(1000, written.getSheetAt(0).getLastRowNum());
+            assertEquals("Account", written.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
+            assertEquals("full name", written.getSheetAt(0).getRow(1).getCell(0).getStringCellValue());
+            assertEquals(100, written.getSheetAt(0).getRow(1000).getCell(1).getNumericCellValue(), 0);
+            assertEquals("TRANSFER", written.getSheetAt(0).getRow(1000).getCell(7).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void sharedStylesTest() throws ReflectiveOperationException {
+        List<Object> manyEntities = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            manyEntities.add(entities.get(0));
+        }
+        definers.get(1).setFormat("#,##0.00");
+
+        Workbook workbook = excelExport.export("some", manyEntities, definers);
+        int styles = workbook.getNumCellStyles();
+
+        excelExport.addDivider(workbook, "some", "divider", 101, 2);
+
+        assertEquals(styles, workbook.getNumCellStyles());
+        assertEquals(excelExport.getDefaultStyle(workbook).getIndex(),
+                workbook.getSheetAt(0).getRow(1).getCell(0).getCellStyle().getIndex());
+        assertEquals(workbook.getSheetAt(0).getRow(1).getCell(1).getCellStyle().getIndex(),
+                workbook.getSheetAt(0).getRow(100).getCell(1).getCellStyle().getIndex());
+        assertEquals("#,##0.00", workbook.getSheetAt(0).getRow(100).getCell(1).getCellStyle().getDataFormatString());
+    }
+
+    @Test
+    public void exportPagesTest() throws ReflectiveOperationException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setComment("comment " + i);
+            all.add(transaction);
+        }
+        List<Pageable> fetched = new ArrayList<>();
+        Function<Pageable, Slice<Transaction>> repository = pageable -> {
+            fetched.add(pageable);
+            int from = (int) pageable.getOffset();
+            int to = Math.min(from + pageable.getPageSize(), all.size());
+            return new SliceImpl<>(all.subList(from, to), pageable, to < all.size());
+        };
+        List<Long> chunks = new ArrayList<>();
+        ExportOptions options = new ExportOptions();
+        options.setChunkSize(3);
+        options.setChunkListener(chunks::add);
+
+        Workbook workbook = excelExport.export("some", PageIterator.of(repository, 3), definers, options);
+
+        assertEquals(3, fetched.size());
+        assertEquals(Arrays.asList(3L, 6L, 7L), chunks);
+        assertEquals(7, workbook.getSheetAt(0).getLastRowNum());
+        assertEquals("comment 0", workbook.getSheetAt(0).getRow(1).getCell(2).getStringCellValue());
+        assertEquals("comment 6", workbook.getSheetAt(0).getRow(7).getCell(2).getStringCellValue());
+    }
+
+    @Test
+    public void exportParallelTest() throws ReflectiveOperationException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setComment("comment " + i);
+            transaction.setAmount(BigDecimal.valueOf(i));
+            all.add(transaction);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Long> chunks = new ArrayList<>();
+        ExportOptions options = new ExportOptions();
+        options.setExecutor(executor);
+        options.setChunkSize(100);
+        options.setChunkListener(chunks::add);
+
+        try {
+            Workbook workbook = excelExport.export("some", all.iterator(), definers, options);
+
+            assertEquals(25, chunks.size());
+            assertEquals(2500, workbook.getSheetAt(0).getLastRowNum());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals("comment " + i, workbook.getSheetAt(0).getRow(i + 1).getCell(2).getStringCellValue());
+                assertEquals(i, workbook.getSheetAt(0).getRow(i + 1).getCell(1).getNumericCellValue(), 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = ReflectiveOperationException.class)
+    public void exportParallelFailureTest() throws ReflectiveOperationException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExportOptions options = new ExportOptions();
+        options.setExecutor(executor);
+
+        try {
+            excelExport.export("some", entities.iterator(),
+                    Arrays.asList(new ExportDefiner("unknown", "Unknown")), options);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void estimatedColumnWidthTest() throws ReflectiveOperationException {
+        ExportOptions options = new ExportOptions();
+        options.setColumnWidth(ColumnWidth.estimated());
+
+        Workbook workbook = excelExport.export("some", entities.iterator(), definers, options);
+
+        Sheet sheet = workbook.getSheetAt(0);
+        // "Destination" header is longer than values, "full name" value is longer than "Account" header
+        assertTrue(sheet.getColumnWidth(4) > sheet.getColumnWidth(0));
+        assertTrue(sheet.getColumnWidth(0) > sheet.getColumnWidth(6));
+        assertTrue(sheet.getColumnWidth(0) >= "full name".length() * 256);
+    }
+
+    @Test
+    public void sampleColumnWidthTest() throws ReflectiveOperationException {
+        Transaction longComment = new Transaction();
+        longComment.setComment("very very very very very long comment");
+        ExportOptions options = new ExportOptions();
+        options.setColumnWidth(ColumnWidth.sample(1));
+
+        Workbook workbook = excelExport.export("some",
+                Arrays.asList(entities.get(0), longComment).iterator(), definers, options);
+
+        // second row is not sampled, so column is sized by "Comment" header
+        assertTrue(workbook.getSheetAt(0).getColumnWidth(2) < longComment.getComment().length() * 256);
+        assertTrue(workbook.getSheetAt(0).getColumnWidth(2) >= "Comment".length() * 256);
+    }
+
+    @Test
+    public void fixedColumnWidthTest() throws ReflectiveOperationException {
+        ExportOptions options = new ExportOptions();
+        options.setColumnWidth(ColumnWidth.fixed(20));
+
+        Workbook workbook = excelExport.export("some", entities.iterator(), definers, options);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(20 * 256, workbook.getSheetAt(0).getColumnWidth(i));
+        }
+    }
+
+    @Test
+    public void addContentStreamTest() throws ReflectiveOperationException {
+        Workbook workbook = new HSSFWorkbook();
+        excelExport.addSheet(workbook, "sheet");
+
+        Integer last = excelExport.addContent(workbook, "sheet", 2, definers, entities.stream(), new ExportOptions());
+
+        assertEquals(2, last.intValue());
+        assertEquals("comment", workbook.getSheet("sheet").getRow(2).getCell(2).getStringCellValue());
+    }
+
+    @Test
+    public void rowsPerSheetTest() throws ReflectiveOperationException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setComment("comment " + i);
+            all.add(transaction);
+        }
+        ExportOptions options = new ExportOptions();
+        options.setRowsPerSheet(3);
+
+        Workbook workbook = excelExport.export("some", all.iterator(), definers, options);
+
+        assertEquals(3, workbook.getNumberOfSheets());
+        assertEquals("some_2", workbook.getSheetName(1));
+        assertEquals("some_3", workbook.getSheetName(2));
+        assertEquals("Comment", workbook.getSheetAt(1).getRow(0).getCell(2).getStringCellValue());
+        assertEquals("comment 3", workbook.getSheetAt(1).getRow(1).getCell(2).getStringCellValue());
+        assertEquals("comment 6", workbook.getSheetAt(2).getRow(1).getCell(2).getStringCellValue());
+        assertEquals(1, workbook.getSheetAt(2).getLastRowNum());
+    }
+
+    @Test
+    public void summaryTest() throws ReflectiveOperationException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(i));
+            all.add(transaction);
+        }
+        all.get(3).setAmount(null);
+        definers.get(1).setAggregates(Arrays.asList(ExportAggregate.AVERAGE, ExportAggregate.SUM));
+        ExportOptions options = new ExportOptions();
+        options.setRowsPerSheet(3);
+
+        Workbook workbook = excelExport.export("some", all.iterator(), definers, options);
+
+        Sheet last = workbook.getSheet("some_3");
+        assertEquals(3, last.getLastRowNum());
+        assertEquals("Total", last.getRow(2).getCell(0).getStringCellValue());
+        assertEquals("SUM(some!B2:B4,some_2!B2:B4,B2)", last.getRow(2).getCell(1).getCellFormula());
+        assertEquals(24, last.getRow(2).getCell(1).getNumericCellValue(), 0);
+        assertEquals("Average", last.getRow(3).getCell(0).getStringCellValue());
+        assertEquals(4, last.getRow(3).getCell(1).getNumericCellValue(), 0);
+        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        assertEquals(24, evaluator.evaluate(last.getRow(2).getCell(1)).getNumberValue(), 0);
+        assertEquals(4, evaluator.evaluate(last.getRow(3).getCell(1)).getNumberValue(), 0);
+    }
+
+    @Test
+    public void concurrentSummaryTest() throws ReflectiveOperationException, IOException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(i));
+            all.add(transaction);
+        }
+        definers.get(1).setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.MAX));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExportOptions options = new ExportOptions();
+        options.setExecutor(executor);
+        options.setRowsPerSheet(300);
+        options.setColumnWidth(ColumnWidth.estimated());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            SXSSFWorkbook workbook = excelExport.exportStreaming("some", all, definers, options);
+            workbook.write(out);
+            workbook.dispose();
+        } finally {
+            executor.shutdown();
+        }
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet last = workbook.getSheet("some_4");
+            assertEquals(102, last.getLastRowNum());
+            assertEquals("SUM(some!B2:B301,some_2!B2:B301,some_3!B2:B301,B2:B101)",
+                    last.getRow(101).getCell(1).getCellFormula());
+            assertEquals(499500, last.getRow(101).getCell(1).getNumericCellValue(), 0);
+            assertEquals(999, last.getRow(102).getCell(1).getNumericCellValue(), 0);
+        }
+    }
+
+    @Test
+    public void concurrentSheetsTest() throws ReflectiveOperationException, IOException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setComment("comment " + i);
+            all.add(transaction);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Long> chunks = new ArrayList<>();
+        ExportOptions options = new ExportOptions();
+        options.setExecutor(executor);
+        options.setRowsPerSheet(300);
+        options.setChunkSize(100);
+        options.setChunkListener(chunks::add);
+        options.setColumnWidth(ColumnWidth.estimated());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            SXSSFWorkbook workbook = excelExport.exportStreaming("some", all, definers, options);
+            workbook.write(out);
+            workbook.dispose();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(10, chunks.size());
+        assertTrue(chunks.contains(1000L));
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(4, workbook.getNumberOfSheets());
+            for (int i = 0; i < all.size(); i++) {
+                Sheet sheet = workbook.getSheetAt(i / 300);
+                assertEquals("comment " + i, sheet.getRow(i % 300 + 1).getCell(2).getStringCellValue());
+            }
+            assertEquals("some_4", workbook.getSheetName(3));
+            assertEquals(100, workbook.getSheetAt(3).getLastRowNum());
+        }
+    }
+
+    @Test
+    public void exportToOutputStreamTest() throws ReflectiveOperationException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        excelExport.export("some", entities, definers, out);
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("Amount", workbook.getSheet("some").getRow(0).getCell(1).getStringCellValue());
+            assertEquals("comment", workbook.getSheet("some").getRow(1).getCell(2).getStringCellValue());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void exportToClosedOutputStreamTest() throws ReflectiveOperationException, IOException {
+        OutputStream aborted = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection reset by peer");
+            }
+        };
+
+        excelExport.export("some", entities.iterator(), definers, new ExportOptions(), aborted);
+    }
+
+    @Test
+    public void exportToFileTest() throws ReflectiveOperationException, IOException {
+        ExportFile file = excelExport.exportToFile("some", entities, definers, new ExportOptions());
+        long size = file.size();
+        MappedByteBuffer mapped = file.map();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(size, file.transferTo(out));
+
+        assertFalse(Files.exists(file.getPath()));
+        assertEquals(size, out.size());
+        assertEquals('P', mapped.get(0));
+        assertEquals('K', mapped.get(1));
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("comment", workbook.getSheet("some").getRow(1).getCell(2).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void exportToFileResourceTest() throws ReflectiveOperationException, IOException {
+        ExportFile file = excelExport.exportToFile("some", entities.iterator(), definers, new ExportOptions());
+        Resource resource = file.toResource();
+
+        assertEquals(file.size(), resource.contentLength());
+        try (InputStream in = resource.getInputStream(); Workbook workbook = new XSSFWorkbook(in)) {
+            assertEquals("Amount", workbook.getSheet("some").getRow(0).getCell(1).getStringCellValue());
+        }
+        // resource is opened again for next range of multi-range request
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals('P', in.read());
+        }
+        assertTrue(Files.exists(file.getPath()));
+        file.close();
+        assertFalse(Files.exists(file.getPath()));
+    }
+
+    @Test
+    public void exportPublisherTest() throws ReflectiveOperationException, IOException {
+        List<Transaction> all = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setComment("comment " + i);
+            all.add(transaction);
+        }
+        ListPublisher<Transaction> publisher = new ListPublisher<>(all, null);
+        ExportOptions options = new ExportOptions();
+        options.setChunkSize(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        excelExport.export("some", publisher, definers, options, out);
+
+        assertTrue(publisher.maxOutstanding <= 10);
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(25, workbook.getSheet("some").getLastRowNum());
+            assertEquals("comment 24", workbook.getSheet("some").getRow(25).getCell(2).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void exportFailedPublisherTest() throws ReflectiveOperationException, IOException {
+        ListPublisher<Object> publisher = new ListPublisher<>(entities,
+                new IllegalStateException("Connection lost"));
+        try {
+            excelExport.export("some", publisher, definers, new ExportOptions(), new ByteArrayOutputStream());
+        } catch (IllegalStateException e) {
+            assertEquals("Connection lost", e.getMessage());
+            return;
+        }
+        throw new AssertionError("Failure of publisher is not thrown");
+    }
+
+    @Test
+    public void typedCellsTest() throws ReflectiveOperationException {
+        List<ExportDefiner> typed = new ArrayList<>();
+        typed.add(new ExportDefiner("amount", "Amount"));
+        typed.add(new ExportDefiner("day", "Day"));
+        typed.add(new ExportDefiner("time", "Time"));
+        typed.add(new ExportDefiner("created", "Created"));
+        TypedValues values = new TypedValues();
+        values.setAmount(new BigDecimal("12.25"));
+        values.setDay(LocalDate.of(1900, 1, 15));
+        values.setTime(LocalDateTime.of(2020, 2, 29, 6, 0));
+        values.setCreated(Instant.parse("1969-12-31T18:00:00Z"));
+
+        Workbook workbook = excelExport.export("some", Collections.singletonList(values), typed);
+
+        Sheet sheet = workbook.getSheet("some");
+        assertEquals(12.25, sheet.getRow(1).getCell(0).getNumericCellValue(), 0);
+        assertEquals(LocalDateTime.of(1900, 1, 15, 0, 0), sheet.getRow(1).getCell(1).getLocalDateTimeCellValue());
+        assertEquals(LocalDateTime.of(2020, 2, 29, 6, 0), sheet.getRow(1).getCell(2).getLocalDateTimeCellValue());
+        assertEquals(LocalDateTime.of(1969, 12, 31, 18, 0), sheet.getRow(1).getCell(3).getLocalDateTimeCellValue());
+        assertEquals("General", sheet.getRow(1).getCell(0).getCellStyle().getDataFormatString());
+    }
+
     @Test
     public void addSheetTest() {
         Workbook workbook = new HSSFWorkbook();
@@ -208,13 +646,74 @@ public class ExportServiceTest {
         assertEquals("full name", workbook.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
         assertEquals(100, workbook.getSheetAt(0).getRow(0).getCell(1).getNumericCellValue(), 0);
         assertEquals("comment", workbook.getSheetAt(0).getRow(0).getCell(2).getStringCellValue());
-        assertEquals("Fri, 28 Apr 2017 17:30:30 GMT", workbook.getSheetAt(0).getRow(0).getCell(3).getStringCellValue());
+        assertEquals(LocalDateTime.of(2017, 4, 28, 17, 30, 30), workbook.getSheetAt(0).getRow(0).getCell(3).getLocalDateTimeCellValue());
         assertEquals("full name", workbook.getSheetAt(0).getRow(0).getCell(4).getStringCellValue());
         assertEquals("error", workbook.getSheetAt(0).getRow(0).getCell(5).getStringCellValue());
         assertEquals("SUCCESS", workbook.getSheetAt(0).getRow(0).getCell(6).getStringCellValue());
         assertEquals("TRANSFER", workbook.getSheetAt(0).getRow(0).getCell(7).getStringCellValue());
     }
 
+    /**
+     * Publisher that emits items synchronously on request and records max demand that was not satisfied yet
+     */
+    private static class ListPublisher<T> implements Flow.Publisher<T> {
+
+        private final List<T> items;
+
+        private final RuntimeException failure;
+
+        private int emitted;
+
+        private long outstanding;
+
+        private long maxOutstanding;
+
+        private ListPublisher(List<T> items, RuntimeException failure) {
+            this.items = items;
+            this.failure = failure;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    outstanding += n;
+                    maxOutstanding = Math.max(maxOutstanding, outstanding);
+                    while (outstanding > 0 && emitted < items.size()) {
+                        outstanding--;
+                        subscriber.onNext(items.get(emitted++));
+                    }
+                    if (emitted == items.size()) {
+                        emitted++;
+                        if (failure == null) {
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onError(failure);
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    emitted = items.size() + 1;
+                }
+            });
+        }
+    }
+
+    @Data
+    private static class TypedValues {
+
+        private BigDecimal amount;
+
+        private LocalDate day;
+
+        private LocalDateTime time;
+
+        private Instant created;
+    }
+
     @Data
     class Primitives {
 
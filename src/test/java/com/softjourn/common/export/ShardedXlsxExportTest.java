@@ -0,0 +1,181 @@
+package com.softjourn.common.export;
+
+import lombok.Data;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedXlsxExportTest {
+
+    private final ShardedXlsxExport shardedExport = new ShardedXlsxExport();
+
+    private List<ExportDefiner> definers;
+
+    @Before
+    public void setUp() {
+        definers = new ArrayList<>();
+        definers.add(new ExportDefiner("id", "Id"));
+        definers.add(new ExportDefiner("name", "Name"));
+        ExportDefiner amount = new ExportDefiner("amount", "Amount");
+        amount.setFormat("#,##0.00");
+        amount.setAggregates(Arrays.asList(ExportAggregate.SUM, ExportAggregate.MAX));
+        definers.add(amount);
+        definers.add(new ExportDefiner("active", "Active"));
+        definers.add(new ExportDefiner("day", "Day"));
+    }
+
+    @Test
+    public void exportTest() throws Exception {
+        List<Item> items = items(2500);
+        items.get(7).setName("<a & \"b\">\u0001 ");
+        items.get(8).setAmount(null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Long> chunks = new ArrayList<>();
+        ExportOptions options = new ExportOptions();
+        options.setExecutor(executor);
+        options.setRowsPerSheet(1000);
+        options.setRowsPerShard(300);
+        options.setChunkListener(chunks::add);
+        options.setColumnWidth(ColumnWidth.estimated());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            shardedExport.export("items", items, definers, options, out);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(Long.valueOf(2500), chunks.get(chunks.size() - 1));
+        assertValidZip(out.toByteArray());
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals("items_3", workbook.getSheetName(2));
+            Sheet first = workbook.getSheetAt(0);
+            assertEquals("Amount", first.getRow(0).getCell(2).getStringCellValue());
+            assertEquals(7, first.getRow(8).getCell(0).getNumericCellValue(), 0);
+            assertEquals("<a & \"b\"> ", first.getRow(8).getCell(1).getStringCellValue());
+            assertEquals("#,##0.00", first.getRow(8).getCell(2).getCellStyle().getDataFormatString());
+            assertEquals(LocalDate.of(2020, 1, 8).atStartOfDay(), first.getRow(8).getCell(4).getLocalDateTimeCellValue());
+            assertEquals(ExcelExport.DATE_TIME_FORMAT, first.getRow(8).getCell(4).getCellStyle().getDataFormatString());
+            assertTrue(first.getRow(8).getCell(3).getBooleanCellValue());
+            assertTrue(first.getColumnWidth(1) > first.getColumnWidth(0));
+
+            Sheet last = workbook.getSheetAt(2);
+            assertEquals(502, last.getLastRowNum());
+            assertEquals("item 2499", last.getRow(500).getCell(1).getStringCellValue());
+            assertEquals("Total", last.getRow(501).getCell(0).getStringCellValue());
+            assertEquals("SUM(items!C2:C1001,items_2!C2:C1001,C2:C501)", last.getRow(501).getCell(2).getCellFormula());
+            double sum = items.stream().filter(item -> item.getAmount() != null)
+                    .mapToDouble(item -> item.getAmount().doubleValue()).sum();
+            assertEquals(sum, last.getRow(501).getCell(2).getNumericCellValue(), 1e-6);
+            assertEquals(2499.25, last.getRow(502).getCell(2).getNumericCellValue(), 0);
+            FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+            assertEquals(sum, evaluator.evaluate(last.getRow(501).getCell(2)).getNumberValue(), 1e-6);
+        }
+    }
+
+    @Test
+    public void importTest() throws Exception {
+        List<Item> items = items(5);
+        items.get(2).setName(null);
+        definers.get(2).setAggregates(null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        shardedExport.export("items", items, definers, out);
+
+        List<Item> imported;
+        try (Stream<Item> stream = new ExcelImport().read(new ByteArrayInputStream(out.toByteArray()), "items",
+                Item.class, definers)) {
+            imported = stream.collect(Collectors.toList());
+        }
+        assertEquals(items, imported);
+    }
+
+    @Test
+    public void combineCrcTest() {
+        byte[] first = "<row r=\"1\">".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "<c r=\"A1\"/></row>".repeat(100).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(first);
+        long firstCrc = crc.getValue();
+        crc.reset();
+        crc.update(second);
+        long secondCrc = crc.getValue();
+        crc.reset();
+        crc.update(first);
+        crc.update(second);
+
+        assertEquals(crc.getValue(), ZipAssembler.combine(firstCrc, secondCrc, second.length));
+        assertEquals(firstCrc, ZipAssembler.combine(firstCrc, 0, 0));
+    }
+
+    /**
+     * Zip stream checks CRC and size of every entry
+     */
+    private static void assertValidZip(byte[] data) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[8192];
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                while (zip.read(buffer) >= 0) {
+                    // entry is checked when it is read to the end
+                }
+            }
+        }
+        assertEquals(Arrays.asList("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+                "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml",
+                "xl/worksheets/sheet2.xml", "xl/worksheets/sheet3.xml"), names);
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName("item " + i);
+            item.setAmount(new BigDecimal(i).add(new BigDecimal("0.25")));
+            item.setActive(i % 2 == 1);
+            item.setDay(LocalDate.of(2020, 1, 1).plusDays(i));
+            items.add(item);
+        }
+        return items;
+    }
+
+    @Data
+    public static class Item {
+
+        private Long id;
+
+        private String name;
+
+        private BigDecimal amount;
+
+        private Boolean active;
+
+        private LocalDate day;
+    }
+}
@@ -86,6 +86,73 @@ public class ReflectionUtilTest {
         ReflectionUtil.tryToCastValue(Instant.class, "2017.02.02 00:00:0");
     }
 
+    @Test
+    public void tryToCastValue_cachedConverters() throws Exception {
+        assertThat(ReflectionUtil.tryToCastValue(int.class, 52), is(52));
+        assertThat(ReflectionUtil.tryToCastValue(Month.class, "MAY"), is(Month.MAY));
+        assertThat(ReflectionUtil.tryToCastValue(BigDecimal.class, 52L), is(new BigDecimal(52)));
+        assertThat(ReflectionUtil.tryToCastValue(LocalDate.class, new StringBuilder("2017-02-02")), is(LocalDate.of(2017, Month.FEBRUARY, 2)));
+        // second conversion of the same pair uses resolved converter
+        assertThat(ReflectionUtil.tryToCastValue(Byte.class, 52), is((byte) 52));
+        assertThat(ReflectionUtil.tryToCastValue(Byte.class, 53), is((byte) 53));
+
+        ConverterRegistry registry = ConverterRegistry.getDefault();
+        assertThat(registry.canConvert(String.class, Instant.class), is(true));
+        assertThat(registry.canConvert(String.class, int.class), is(false));
+        assertThat(registry.canConvert(Long.class, TestEntityString.class), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tryToCastValue_notConvertible() throws Exception {
+        try {
+            ReflectionUtil.tryToCastValue(TestEntityString.class, "id");
+        } catch (IllegalArgumentException e) {
+            // failed pair is cached and fails the same way again
+            ReflectionUtil.tryToCastValue(TestEntityString.class, "id");
+        }
+    }
+
+    @Test
+    public void tryToCastValue_primitiveFloating() throws Exception {
+        assertThat(ReflectionUtil.tryToCastValue(double.class, 552.5), is(552.5));
+        assertThat(ReflectionUtil.tryToCastValue(float.class, 52.5f), is(52.5f));
+    }
+
+    @Test
+    public void toPrimitives() throws Exception {
+        assertThat(ReflectionUtil.toLong("52000000000", -1), is(52000000000L));
+        assertThat(ReflectionUtil.toLong(52.0, -1), is(52L));
+        assertThat(ReflectionUtil.toLong(new BigDecimal("52.00"), -1), is(52L));
+        assertThat(ReflectionUtil.toLong(new StringBuilder("-52"), -1), is(-52L));
+        assertThat(ReflectionUtil.toLong(52.5, -1), is(-1L));
+        assertThat(ReflectionUtil.toLong(9.3e18, -1), is(-1L));
+        assertThat(ReflectionUtil.toLong("52test", -1), is(-1L));
+        assertThat(ReflectionUtil.toLong(null, -1), is(-1L));
+
+        assertThat(ReflectionUtil.toInt("5200000", -1), is(5200000));
+        assertThat(ReflectionUtil.toInt(5200000000L, -1), is(-1));
+        assertThat(ReflectionUtil.toInt(Long.MIN_VALUE, -1), is(-1));
+        assertThat(ReflectionUtil.toInt("", -1), is(-1));
+
+        assertThat(ReflectionUtil.toDouble("552.5", -1), is(552.5));
+        assertThat(ReflectionUtil.toDouble(new BigDecimal("552.5"), -1), is(552.5));
+        assertThat(ReflectionUtil.toDouble("test", -1), is(-1.0));
+
+        assertThat(ReflectionUtil.toBoolean("TRUE", false), is(true));
+        assertThat(ReflectionUtil.toBoolean("false", true), is(false));
+        assertThat(ReflectionUtil.toBoolean("yes", true), is(true));
+        assertThat(ReflectionUtil.toBoolean(null, false), is(false));
+    }
+
+    @Test
+    public void toPrimitiveArrays() throws Exception {
+        Object[] values = {1, "2", null, 3.5, "x"};
+        assertThat(ReflectionUtil.toLongs(values, 0), is(new long[]{1, 2, 0, 0, 0}));
+        assertThat(ReflectionUtil.toInts(values, -1), is(new int[]{1, 2, -1, -1, -1}));
+        assertThat(ReflectionUtil.toDoubles(values, 0), is(new double[]{1, 2, 0, 3.5, 0}));
+        assertThat(ReflectionUtil.toBooleans(new Object[]{true, "false", null}, true), is(new boolean[]{true, false, true}));
+    }
+
     @Test
     public void getIdPropertyName() throws Exception {
         assertThat(ReflectionUtil.getIdFieldName(TestEntityInteger.class), is("intId"));